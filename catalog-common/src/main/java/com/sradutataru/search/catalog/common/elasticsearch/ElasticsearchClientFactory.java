@@ -0,0 +1,146 @@
+package com.sradutataru.search.catalog.common.elasticsearch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Builds the {@link RestHighLevelClient} of the catalog applications from {@link ElasticsearchClientProperties}:
+ * pooled connections with explicit limits, keep-alive and timeouts, optional gzip request compression and
+ * optional node sniffing. The factory owns the connection pool and the sniffer, so it must be closed after
+ * the client.
+ */
+@Slf4j
+public class ElasticsearchClientFactory implements Closeable {
+
+    private final ElasticsearchClientProperties properties;
+    private PoolingNHttpClientConnectionManager connectionManager;
+    private Sniffer sniffer;
+
+    public ElasticsearchClientFactory(ElasticsearchClientProperties properties) {
+        this.properties = properties;
+    }
+
+    public synchronized RestHighLevelClient create() {
+        if (connectionManager != null) {
+            throw new IllegalStateException("The Elasticsearch client was already created");
+        }
+        connectionManager = connectionManager();
+        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(
+                AuthScope.ANY,
+                new UsernamePasswordCredentials(properties.getUsername(), properties.getPassword())
+        );
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, properties.getKeepAliveMs()) : properties.getKeepAliveMs();
+        };
+
+        SniffOnFailureListener sniffOnFailureListener = new SniffOnFailureListener();
+        RestClientBuilder builder = RestClient.builder(hosts().toArray(HttpHost[]::new))
+                .setRequestConfigCallback(requestConfig -> requestConfig
+                        .setConnectTimeout(properties.getConnectTimeoutMs())
+                        .setSocketTimeout(properties.getSocketTimeoutMs())
+                        .setConnectionRequestTimeout(properties.getConnectionRequestTimeoutMs()))
+                .setHttpClientConfigCallback(httpClientBuilder -> {
+                    httpClientBuilder
+                            .setDefaultCredentialsProvider(credentialsProvider)
+                            .setConnectionManager(connectionManager)
+                            .setKeepAliveStrategy(keepAliveStrategy);
+                    return properties.isCompression() ? gzipRequests(httpClientBuilder) : httpClientBuilder;
+                });
+        if (properties.getSniffing().isEnabled()) {
+            builder.setFailureListener(sniffOnFailureListener);
+        }
+        RestHighLevelClient client = new RestHighLevelClient(builder);
+
+        if (properties.getSniffing().isEnabled()) {
+            ElasticsearchNodesSniffer.Scheme scheme = "https".equalsIgnoreCase(hosts().get(0).getSchemeName())
+                    ? ElasticsearchNodesSniffer.Scheme.HTTPS
+                    : ElasticsearchNodesSniffer.Scheme.HTTP;
+            sniffer = Sniffer.builder(client.getLowLevelClient())
+                    .setNodesSniffer(new ElasticsearchNodesSniffer(client.getLowLevelClient(),
+                            ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme))
+                    .setSniffIntervalMillis(properties.getSniffing().getIntervalMs())
+                    .setSniffAfterFailureDelayMillis(properties.getSniffing().getAfterFailureDelayMs())
+                    .build();
+            sniffOnFailureListener.setSniffer(sniffer);
+        }
+        log.info("Created Elasticsearch client for {} with {} connections ({} per route)", hosts(),
+                properties.getMaxConnTotal(), properties.getMaxConnPerRoute());
+        return client;
+    }
+
+    /**
+     * Current usage of the connection pool: leased, pending, available and maximum connections.
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager == null ? new PoolStats(0, 0, 0, properties.getMaxConnTotal()) : connectionManager.getTotalStats();
+    }
+
+    List<HttpHost> hosts() {
+        if (properties.getUris() == null || properties.getUris().isEmpty()) {
+            return List.of(new HttpHost(properties.getHost(), properties.getPort(), properties.getScheme()));
+        }
+        return properties.getUris().stream().map(HttpHost::create).toList();
+    }
+
+    private PoolingNHttpClientConnectionManager connectionManager() {
+        try {
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setIoThreadCount(properties.getIoThreadCount())
+                    .setConnectTimeout(properties.getConnectTimeoutMs())
+                    .setSoTimeout(properties.getSocketTimeoutMs())
+                    .build();
+            PoolingNHttpClientConnectionManager manager =
+                    new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+            manager.setMaxTotal(properties.getMaxConnTotal());
+            manager.setDefaultMaxPerRoute(properties.getMaxConnPerRoute());
+            return manager;
+        } catch (IOReactorException e) {
+            throw new RuntimeException("Failed to create the Elasticsearch connection pool", e);
+        }
+    }
+
+    /**
+     * Keeps every setting of {@code configured} and wraps the client it builds in a {@link GzipRequestHttpAsyncClient}.
+     * RestClient only calls {@code build()} on the builder returned by its callback.
+     */
+    private static HttpAsyncClientBuilder gzipRequests(HttpAsyncClientBuilder configured) {
+        return new HttpAsyncClientBuilder() {
+            @Override
+            public CloseableHttpAsyncClient build() {
+                return new GzipRequestHttpAsyncClient(configured.build());
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (sniffer != null) {
+            sniffer.close();
+            sniffer = null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.sradutataru.search.catalog.common.elasticsearch;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.Supplier;
+
+/**
+ * Publishes the connection pool usage of an {@link ElasticsearchClientFactory} as
+ * {@code elasticsearch.client.connections}, tagged by state.
+ */
+public class ElasticsearchClientMetrics implements MeterBinder {
+
+    private final ElasticsearchClientFactory factory;
+
+    public ElasticsearchClientMetrics(ElasticsearchClientFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "leased", () -> factory.getPoolStats().getLeased());
+        gauge(registry, "pending", () -> factory.getPoolStats().getPending());
+        gauge(registry, "available", () -> factory.getPoolStats().getAvailable());
+        gauge(registry, "max", () -> factory.getPoolStats().getMax());
+    }
+
+    private static void gauge(MeterRegistry registry, String state, Supplier<Number> value) {
+        Gauge.builder("elasticsearch.client.connections", value)
+                .tag("state", state)
+                .description("Connections of the Elasticsearch client pool")
+                .register(registry);
+    }
+}
@@ -0,0 +1,74 @@
+package com.sradutataru.search.catalog.common.elasticsearch;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection settings of the Elasticsearch client, bound by each application under {@code spring.elasticsearch}.
+ * Serializable so Spark executors can build a client of their own.
+ */
+@Data
+public class ElasticsearchClientProperties implements Serializable {
+
+    /**
+     * Nodes to connect to, e.g. {@code http://es1:9200}. When empty, {@link #host}, {@link #port} and
+     * {@link #scheme} describe the single node.
+     */
+    private List<String> uris = new ArrayList<>();
+
+    private String host = "localhost";
+
+    private int port = 9200;
+
+    private String scheme = "http";
+
+    private String username = "elastic";
+
+    private String password = "elastic";
+
+    private int ioThreadCount = 4;
+
+    private int maxConnTotal = 30;
+
+    private int maxConnPerRoute = 10;
+
+    /**
+     * Upper bound on how long an idle pooled connection is reused, unless the server asks for less.
+     */
+    private long keepAliveMs = 60000;
+
+    private int connectTimeoutMs = 1000;
+
+    private int socketTimeoutMs = 30000;
+
+    /**
+     * How long a request waits for a pooled connection before failing.
+     */
+    private int connectionRequestTimeoutMs = 1000;
+
+    /**
+     * Gzip request bodies. Mostly pays off for {@code _msearch} and {@code _bulk}.
+     */
+    private boolean compression = false;
+
+    private Sniffing sniffing = new Sniffing();
+
+    @Data
+    public static class Sniffing implements Serializable {
+
+        /**
+         * Periodically discover the cluster nodes and spread requests over all of them.
+         */
+        private boolean enabled = false;
+
+        private int intervalMs = 300000;
+
+        /**
+         * Sniff again this long after a node failed, instead of waiting for the next interval.
+         */
+        private int afterFailureDelayMs = 30000;
+    }
+}
@@ -0,0 +1,148 @@
+package com.sradutataru.search.catalog.common.elasticsearch;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips request bodies before the HTTP client sees them. The client streams the body from the request producer
+ * RestClient built from the original entity, so the entity has to be replaced by wrapping that producer; an
+ * interceptor swapping the entity would only change the headers. The 7.3 client cannot decompress responses, so
+ * only request bodies are compressed.
+ */
+final class GzipRequestHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private static final String GZIP = "gzip";
+
+    private final CloseableHttpAsyncClient client;
+
+    GzipRequestHttpAsyncClient(CloseableHttpAsyncClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        return client.execute(new GzipRequestProducer(requestProducer), responseConsumer, context, callback);
+    }
+
+    @Override
+    public void start() {
+        client.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return client.isRunning();
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    /**
+     * Replaces a body without content encoding by its gzipped bytes.
+     */
+    static HttpRequest compress(HttpRequest request) throws IOException {
+        if (!(request instanceof HttpEntityEnclosingRequest entityRequest)) {
+            return request;
+        }
+        HttpEntity entity = entityRequest.getEntity();
+        if (entity == null || entity.getContentEncoding() != null) {
+            return request;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            entity.writeTo(gzip);
+        }
+        NByteArrayEntity compressed = new NByteArrayEntity(bytes.toByteArray());
+        compressed.setContentType(entity.getContentType());
+        compressed.setContentEncoding(GZIP);
+        entityRequest.setEntity(compressed);
+        return request;
+    }
+
+    /**
+     * Compresses the request the first time it is generated and then produces it from the compressed entity,
+     * retries included.
+     */
+    private static final class GzipRequestProducer implements HttpAsyncRequestProducer {
+
+        private final HttpAsyncRequestProducer original;
+        private HttpAsyncRequestProducer compressed;
+
+        private GzipRequestProducer(HttpAsyncRequestProducer original) {
+            this.original = original;
+        }
+
+        @Override
+        public HttpHost getTarget() {
+            return original.getTarget();
+        }
+
+        @Override
+        public HttpRequest generateRequest() throws IOException, HttpException {
+            if (compressed == null) {
+                compressed = new BasicAsyncRequestProducer(original.getTarget(), compress(original.generateRequest()));
+            }
+            return compressed.generateRequest();
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+            compressed.produceContent(encoder, ioControl);
+        }
+
+        @Override
+        public void requestCompleted(HttpContext context) {
+            current().requestCompleted(context);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            current().failed(ex);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return original.isRepeatable();
+        }
+
+        @Override
+        public void resetRequest() throws IOException {
+            current().resetRequest();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                original.close();
+            } finally {
+                if (compressed != null) {
+                    compressed.close();
+                }
+            }
+        }
+
+        private HttpAsyncRequestProducer current() {
+            return compressed == null ? original : compressed;
+        }
+    }
+}
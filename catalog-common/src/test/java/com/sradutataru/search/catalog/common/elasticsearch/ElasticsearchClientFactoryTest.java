@@ -0,0 +1,103 @@
+package com.sradutataru.search.catalog.common.elasticsearch;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ElasticsearchClientFactoryTest {
+
+    private static final String BODY = "{\"index\":{\"_index\":\"catalog-index\"}}\n{\"name\":\"Apple iPhone 13 Pro\"}\n";
+
+    @Test
+    void testHosts_FallsBackToSingleNode() {
+        ElasticsearchClientProperties properties = new ElasticsearchClientProperties();
+        properties.setHost("es");
+        properties.setPort(9201);
+
+        List<HttpHost> hosts = new ElasticsearchClientFactory(properties).hosts();
+
+        assertEquals(List.of(new HttpHost("es", 9201, "http")), hosts);
+    }
+
+    @Test
+    void testHosts_UsesUris() {
+        ElasticsearchClientProperties properties = new ElasticsearchClientProperties();
+        properties.setUris(List.of("http://es1:9200", "https://es2:9243"));
+
+        List<HttpHost> hosts = new ElasticsearchClientFactory(properties).hosts();
+
+        assertEquals(List.of(new HttpHost("es1", 9200, "http"), new HttpHost("es2", 9243, "https")), hosts);
+    }
+
+    @Test
+    void testCreate_SendsGzippedBodyWhenCompressionEnabled() throws Exception {
+        ReceivedRequest received = send(true);
+
+        assertEquals("gzip", received.contentEncoding());
+        assertEquals(BODY, received.body());
+    }
+
+    @Test
+    void testCreate_SendsPlainBodyByDefault() throws Exception {
+        ReceivedRequest received = send(false);
+
+        assertNull(received.contentEncoding());
+        assertEquals(BODY, received.body());
+    }
+
+    /**
+     * Sends {@link #BODY} through a client built by the factory to a local HTTP server and returns what it
+     * received, gunzipping the body when it says it is gzipped.
+     */
+    private static ReceivedRequest send(boolean compression) throws Exception {
+        AtomicReference<ReceivedRequest> received = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if ("gzip".equals(contentEncoding)) {
+                try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    body = gzip.readAllBytes();
+                }
+            }
+            received.set(new ReceivedRequest(contentEncoding, new String(body, StandardCharsets.UTF_8)));
+            byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        ElasticsearchClientProperties properties = new ElasticsearchClientProperties();
+        properties.setHost(server.getAddress().getHostString());
+        properties.setPort(server.getAddress().getPort());
+        properties.setCompression(compression);
+        try (ElasticsearchClientFactory factory = new ElasticsearchClientFactory(properties);
+             RestHighLevelClient client = factory.create()) {
+            Request request = new Request("POST", "/_bulk");
+            request.setEntity(new StringEntity(BODY, ContentType.APPLICATION_JSON));
+            client.getLowLevelClient().performRequest(request);
+        } finally {
+            server.stop(0);
+        }
+        return received.get();
+    }
+
+    private record ReceivedRequest(String contentEncoding, String body) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Chunked bulk ingestion on top of {@link BulkProcessor}. Requests are flushed by action count, byte size and
+ * interval, at most {@code concurrent-requests} bulks are in flight, and items rejected with a 429 are retried
+ * with exponential backoff.
+ * <p>
+ * Sessions on the Spark executors are opened with {@link #open(RestHighLevelClient, Settings, String)} on a
+ * client of their own, from the serializable {@link #settings()} of this writer.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkWriter {
+
+    private final RestHighLevelClient restHighLevelClient;
+
+    @Value("${catalog.indexer.bulk.actions:1000}")
+    private int bulkActions;
+
+    @Value("${catalog.indexer.bulk.size-mb:5}")
+    private long bulkSizeMb;
+
+    @Value("${catalog.indexer.bulk.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${catalog.indexer.bulk.concurrent-requests:2}")
+    private int concurrentRequests;
+
+    @Value("${catalog.indexer.bulk.backoff-initial-ms:100}")
+    private long backoffInitialMs;
+
+    @Value("${catalog.indexer.bulk.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${catalog.indexer.bulk.await-close-ms:60000}")
+    private long awaitCloseMs;
+
+    /**
+     * Opens a session writing through its own {@link BulkProcessor}. Closing the session flushes the remaining
+     * requests, waits for the bulks in flight and logs the throughput.
+     */
+    public Session open(String name) {
+        return open(restHighLevelClient, settings(), name);
+    }
+
+    /**
+     * Opens a session writing through {@code client} with {@code settings}, for callers that cannot use the
+     * client of this writer, such as Spark executors.
+     */
+    public static Session open(RestHighLevelClient client, Settings settings, String name) {
+        return new Session(client, settings, name);
+    }
+
+    public Settings settings() {
+        return new Settings(bulkActions, bulkSizeMb, flushIntervalMs, concurrentRequests, backoffInitialMs, maxRetries, awaitCloseMs);
+    }
+
+    /**
+     * Number of bulks allowed in flight, which executor-side writes use as their partition count.
+     */
+    public int concurrentRequests() {
+        return Math.max(1, concurrentRequests);
+    }
+
+    public record Settings(int bulkActions, long bulkSizeMb, long flushIntervalMs, int concurrentRequests,
+                           long backoffInitialMs, int maxRetries, long awaitCloseMs) implements Serializable {
+
+        /**
+         * The same limits with a single bulk in flight, for sessions running side by side in several partitions.
+         */
+        public Settings sequential() {
+            return new Settings(bulkActions, bulkSizeMb, flushIntervalMs, 1, backoffInitialMs, maxRetries, awaitCloseMs);
+        }
+    }
+
+    public record ItemFailure(String index, String id, String message) {
+    }
+
+    public record Result(long succeeded, List<ItemFailure> failures, long bytes, long tookMs) {
+
+        public boolean hasFailures() {
+            return !failures.isEmpty();
+        }
+    }
+
+    public static final class Session implements AutoCloseable {
+
+        private final String name;
+        private final long awaitCloseMs;
+        private final BulkProcessor processor;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final List<ItemFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        private Result result;
+
+        private Session(RestHighLevelClient client, Settings settings, String name) {
+            this.name = name;
+            this.awaitCloseMs = settings.awaitCloseMs();
+            this.processor = BulkProcessor.builder(
+                            (request, listener) -> client.bulkAsync(request, DEFAULT, listener), new Listener())
+                    .setBulkActions(settings.bulkActions())
+                    .setBulkSize(new ByteSizeValue(settings.bulkSizeMb(), ByteSizeUnit.MB))
+                    .setFlushInterval(TimeValue.timeValueMillis(settings.flushIntervalMs()))
+                    .setConcurrentRequests(settings.concurrentRequests())
+                    .setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(settings.backoffInitialMs()), settings.maxRetries()))
+                    .build();
+        }
+
+        public Session add(DocWriteRequest<?> request) {
+            processor.add(request);
+            return this;
+        }
+
+        /**
+         * Flushes and waits for every pending bulk, returning the outcome of all the requests added to the session.
+         */
+        @Override
+        public Result close() {
+            if (result != null) {
+                return result;
+            }
+            try {
+                if (!processor.awaitClose(awaitCloseMs, TimeUnit.MILLISECONDS)) {
+                    throw new RuntimeException("Timed out waiting for " + name + " bulk requests to complete");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for " + name + " bulk requests", e);
+            }
+            long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            result = new Result(succeeded.get(), List.copyOf(failures), bytes.get(), tookMs);
+            log.info("Bulk {}: {} items indexed, {} failed, {} bytes in {} ms ({} docs/s)", name, result.succeeded(),
+                    result.failures().size(), result.bytes(), tookMs, tookMs == 0 ? result.succeeded() : result.succeeded() * 1000 / tookMs);
+            return result;
+        }
+
+        private final class Listener implements BulkProcessor.Listener {
+
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                bytes.addAndGet(request.estimatedSizeInBytes());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                for (BulkItemResponse item : response.getItems()) {
+                    if (item.isFailed()) {
+                        failures.add(new ItemFailure(item.getIndex(), item.getId(), item.getFailureMessage()));
+                        log.warn("Bulk {} item {}/{} failed: {}", name, item.getIndex(), item.getId(), item.getFailureMessage());
+                    } else {
+                        succeeded.incrementAndGet();
+                    }
+                }
+                log.debug("Bulk {} execution {}: {} items in {} ms", name, executionId, request.numberOfActions(), response.getTook().millis());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                log.error("Bulk {} execution {} of {} items failed: {}", name, executionId, request.numberOfActions(), failure.getMessage(), failure);
+                for (DocWriteRequest<?> item : request.requests()) {
+                    failures.add(new ItemFailure(item.index(), item.id(), failure.getMessage()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequest;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.elasticsearch.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+import static org.elasticsearch.common.xcontent.XContentType.JSON;
+
+/**
+ * Creates a fresh, timestamped index per rebuild from the schemas shared with es-init, moves the preview alias
+ * onto it and deletes the generations that no alias points to anymore beyond {@code catalog.indexer.retention.generations}.
+ * <p>
+ * While a generation is loaded it runs with a bulk-load profile (no refresh, no replicas, async translog);
+ * {@link #finishBulkLoad} restores the serving settings of its schema.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexGenerationService {
+
+    private static final DateTimeFormatter GENERATION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+    private static final String CREATION_DATE = "index.creation_date";
+    private static final String REFRESH_INTERVAL = "refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "number_of_replicas";
+    private static final String TRANSLOG_DURABILITY = "translog.durability";
+    private static final String INDEX_REFRESH_INTERVAL = "index." + REFRESH_INTERVAL;
+    private static final String BULK_LOAD_REFRESH_INTERVAL = "-1";
+
+    private final RestHighLevelClient restHighLevelClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${catalog.indexer.retention.generations:1}")
+    private int retainedGenerations;
+
+    @Value("${catalog.indexer.bulk-load.enabled:true}")
+    private boolean bulkLoadEnabled;
+
+    @Value("${catalog.indexer.bulk-load.force-merge-segments:0}")
+    private int forceMergeSegments;
+
+    @Value("${catalog.indexer.bulk-load.wait-for-status:green}")
+    private String waitForStatus;
+
+    @Value("${catalog.indexer.bulk-load.health-timeout-ms:60000}")
+    private long healthTimeoutMs;
+
+    public static String newGeneration() {
+        return ZonedDateTime.now(ZoneOffset.UTC).format(GENERATION_FORMAT);
+    }
+
+    /**
+     * Creates {@code <prefix>_<generation>} from {@code schema} with the bulk-load profile, points {@code previewAlias} at it and only at it,
+     * then garbage-collects the older generations of {@code prefix}.
+     *
+     * @return the name of the new index
+     */
+    public String createPreview(String prefix, String schema, String previewAlias, String generation) {
+        String index = prefix + "_" + generation;
+        create(index, schema);
+        point(previewAlias, prefix, index);
+        collectGarbage(prefix);
+        return index;
+    }
+
+    /**
+     * Restores the refresh interval and replicas {@code schema} serves with and a durable translog, refreshes
+     * {@code index} and, if {@code catalog.indexer.bulk-load.force-merge-segments} is set, force-merges it.
+     * Replicas are capped to what the data nodes of the cluster can allocate.
+     */
+    public void finishBulkLoad(String index, String schema) {
+        if (!bulkLoadEnabled) return;
+        try {
+            JsonNode settings = indexSettings(readSchema(schema));
+            int replicas = Math.min(settings.path(NUMBER_OF_REPLICAS).asInt(1), Math.max(0, dataNodes() - 1));
+            Settings serving = Settings.builder()
+                    .put(INDEX_REFRESH_INTERVAL, settings.path(REFRESH_INTERVAL).asText("1s"))
+                    .put("index." + NUMBER_OF_REPLICAS, replicas)
+                    .put("index." + TRANSLOG_DURABILITY, "request")
+                    .build();
+            restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(index).settings(serving), DEFAULT);
+            restHighLevelClient.indices().refresh(new RefreshRequest(index), DEFAULT);
+            if (forceMergeSegments > 0) {
+                restHighLevelClient.indices().forcemerge(new ForceMergeRequest(index).maxNumSegments(forceMergeSegments), DEFAULT);
+            }
+            log.info("Restored serving settings {} on {}", serving, index);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to restore serving settings of " + index, e);
+        }
+    }
+
+    /**
+     * Waits up to {@code catalog.indexer.bulk-load.health-timeout-ms} for {@code indices} to reach
+     * {@code catalog.indexer.bulk-load.wait-for-status}, failing if they do not.
+     */
+    public void awaitHealthy(String... indices) {
+        ClusterHealthStatus status = ClusterHealthStatus.fromString(waitForStatus);
+        ClusterHealthRequest request = new ClusterHealthRequest(indices)
+                .waitForStatus(status)
+                .timeout(TimeValue.timeValueMillis(healthTimeoutMs));
+        ClusterHealthResponse response;
+        try {
+            response = restHighLevelClient.cluster().health(request, DEFAULT);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to check health of " + Arrays.toString(indices), e);
+        }
+        if (response.isTimedOut() || response.getStatus().value() > status.value()) {
+            throw new RuntimeException("Indices " + Arrays.toString(indices) + " are " + response.getStatus() + ", expected " + status);
+        }
+    }
+
+    /**
+     * Fails if any of {@code indices} still carries the bulk-load profile, which means its rebuild never reached
+     * {@link #finishBulkLoad} and it may be only partly loaded.
+     */
+    public void requireServing(String... indices) {
+        GetSettingsResponse response;
+        try {
+            response = restHighLevelClient.indices().getSettings(new GetSettingsRequest().indices(indices).names(INDEX_REFRESH_INTERVAL), DEFAULT);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read settings of " + Arrays.toString(indices), e);
+        }
+        for (String index : indices) {
+            if (BULK_LOAD_REFRESH_INTERVAL.equals(response.getSetting(index, INDEX_REFRESH_INTERVAL))) {
+                throw new RuntimeException("Index " + index + " is still in its bulk-load profile, its rebuild did not complete");
+            }
+        }
+    }
+
+    private int dataNodes() throws IOException {
+        return restHighLevelClient.cluster().health(new ClusterHealthRequest(), DEFAULT).getNumberOfDataNodes();
+    }
+
+    private void create(String index, String schema) {
+        try {
+            ObjectNode source = readSchema(schema);
+            if (bulkLoadEnabled) {
+                ObjectNode settings = indexSettings(source);
+                settings.put(REFRESH_INTERVAL, BULK_LOAD_REFRESH_INTERVAL);
+                settings.put(NUMBER_OF_REPLICAS, 0);
+                settings.put(TRANSLOG_DURABILITY, "async");
+            }
+            restHighLevelClient.indices().create(new CreateIndexRequest(index).source(objectMapper.writeValueAsString(source), JSON), DEFAULT);
+            log.info("Created index {} from {}", index, schema);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create index " + index, e);
+        }
+    }
+
+    /**
+     * Aliases are assigned by {@link #point} once the index exists, so the ones declared for es-init are dropped.
+     */
+    private ObjectNode readSchema(String schema) throws IOException {
+        try (InputStream is = new ClassPathResource("elasticsearch/" + schema).getInputStream()) {
+            ObjectNode source = (ObjectNode) objectMapper.readTree(is);
+            source.remove("aliases");
+            return source;
+        }
+    }
+
+    /**
+     * The schemas declare index settings either flat under {@code settings} or nested under {@code settings.index}.
+     */
+    private static ObjectNode indexSettings(ObjectNode source) {
+        ObjectNode settings = source.has("settings") ? (ObjectNode) source.get("settings") : source.putObject("settings");
+        return settings.has("index") ? (ObjectNode) settings.get("index") : settings;
+    }
+
+    private void point(String alias, String prefix, String index) {
+        try {
+            GetAliasesResponse current = restHighLevelClient.indices().getAlias(new GetAliasesRequest(alias), DEFAULT);
+            IndicesAliasesRequest req = new IndicesAliasesRequest();
+            for (Map.Entry<String, Set<AliasMetaData>> entry : current.getAliases().entrySet()) {
+                if (!entry.getKey().startsWith(prefix) || entry.getValue().isEmpty()) continue;
+                req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.REMOVE).alias(alias).index(entry.getKey()));
+            }
+            req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.ADD).alias(alias).index(index));
+            restHighLevelClient.indices().updateAliases(req, DEFAULT);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to point " + alias + " to " + index, e);
+        }
+    }
+
+    /**
+     * Deletes the generations of {@code prefix} no alias points to, keeping the newest {@code retainedGenerations}
+     * of them so a rebuild can still be inspected or re-aliased by hand.
+     */
+    void collectGarbage(String prefix) {
+        try {
+            GetIndexResponse response = restHighLevelClient.indices().get(new GetIndexRequest(prefix + "_*"), DEFAULT);
+            Map<String, List<AliasMetaData>> aliases = response.getAliases();
+            List<String> expired = Arrays.stream(response.getIndices())
+                    .filter(index -> aliases.getOrDefault(index, List.of()).isEmpty())
+                    .sorted(Comparator.comparingLong((String index) -> Long.parseLong(response.getSetting(index, CREATION_DATE))).reversed())
+                    .skip(Math.max(0, retainedGenerations))
+                    .toList();
+            if (expired.isEmpty()) return;
+            restHighLevelClient.indices().delete(new DeleteIndexRequest(expired.toArray(String[]::new)), DEFAULT);
+            log.info("Deleted expired generations {}", expired);
+        } catch (IOException e) {
+            log.warn("Failed to collect old generations of {}: {}", prefix, e.getMessage());
+        }
+    }
+}
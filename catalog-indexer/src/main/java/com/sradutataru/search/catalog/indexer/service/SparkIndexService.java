@@ -5,19 +5,22 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sradutataru.search.catalog.indexer.dto.ProductDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.api.java.UDF2;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
 import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.storage.StorageLevel;
 import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.GetAliasesResponse;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.cluster.metadata.AliasMetaData;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
@@ -25,10 +28,16 @@ import javax.validation.Valid;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.client.RequestOptions.DEFAULT;
 import static org.elasticsearch.common.xcontent.XContentType.JSON;
@@ -39,38 +48,174 @@ import static org.elasticsearch.common.xcontent.XContentType.JSON;
 public class SparkIndexService {
 
     private static final String CATALOG_INDEX = "catalog-index";
-    private static final String TAGS_INDEX = "semantic-tags";
     private static final String PREVIEW = "_preview";
     public static final String PREVIEW_ALIAS = CATALOG_INDEX + PREVIEW;
     private static final String LIVE = "_live";
     public static final String LIVE_ALIAS = CATALOG_INDEX + LIVE;
+    private static final String SUGGEST_INDEX = "catalog-suggest";
+    public static final String SUGGEST_PREVIEW_ALIAS = SUGGEST_INDEX + PREVIEW;
+    public static final String SUGGEST_LIVE_ALIAS = SUGGEST_INDEX + LIVE;
+    private static final String TAGS_INDEX = "semantic-tags";
+    public static final String TAGS_PREVIEW_ALIAS = TAGS_INDEX + PREVIEW;
+    public static final String TAGS_LIVE_ALIAS = TAGS_INDEX;
+    private static final String CATALOG_SCHEMA = "catalog-index-schema_A.json";
+    private static final String SUGGEST_SCHEMA = "catalog-suggest-schema_A.json";
+    private static final String TAGS_SCHEMA = "semantic-tags-schema_A.json";
+    private static final String NO_CONTEXT = "none";
+    private static final int MAX_STOCK_WEIGHT = 999;
 
     private final TagService tagService;
+    private final IndexGenerationService indexGenerationService;
     private final SparkSession sparkSession;
     private final RestHighLevelClient restHighLevelClient;
     private final ObjectMapper objectMapper;
 
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @Value("${catalog.indexer.storage-level:MEMORY_AND_DISK}")
+    private String storageLevel;
+
+    /**
+     * Rebuilds the catalog, suggest and tag indices into a new generation behind the preview aliases, leaving the
+     * live ones untouched until {@link #swapCollections()}. The joined catalog is persisted at
+     * {@code catalog.indexer.storage-level} and materialized once, so the catalog, suggest and tag writes
+     * all read it instead of re-reading the JSON sources and re-running the joins.
+     * <p>
+     * Only one rebuild runs at a time: overlapping ones would move the preview aliases away from each other and
+     * garbage-collect the generation the other one is loading. A rebuild requested meanwhile is skipped.
+     */
     @Async
     public void indexAllDataAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.warn("A rebuild is already running, skipping this one");
+            return;
+        }
+        Map<String, Long> timings = new LinkedHashMap<>();
+        Dataset<Row> joinedDF = null;
         try {
-            cleanIndex(PREVIEW_ALIAS);
-            cleanIndex(TAGS_INDEX);
+            long start = System.nanoTime();
+            String generation = IndexGenerationService.newGeneration();
+            String catalogIndex = indexGenerationService.createPreview(CATALOG_INDEX, CATALOG_SCHEMA, PREVIEW_ALIAS, generation);
+            String suggestIndex = indexGenerationService.createPreview(SUGGEST_INDEX, SUGGEST_SCHEMA, SUGGEST_PREVIEW_ALIAS, generation);
+            String tagsIndex = indexGenerationService.createPreview(TAGS_INDEX, TAGS_SCHEMA, TAGS_PREVIEW_ALIAS, generation);
+            start = lap(timings, "create", start);
 
             Dataset<Row> brandsDF = loadJsonDataset("data/brands.json");
             Dataset<Row> categoriesDF = loadJsonDataset("data/categories.json");
             Dataset<Row> productsDF = loadJsonDataset("data/products.json");
-            Dataset<Row> joinedDF = productsDF
-                    .join(brandsDF, productsDF.col("brand").equalTo(brandsDF.col("brand_id")), "left")
-                    .join(categoriesDF, productsDF.col("category").equalTo(categoriesDF.col("category_id")), "left");
+            joinedDF = productsDF
+                    .join(functions.broadcast(brandsDF), productsDF.col("brand").equalTo(brandsDF.col("brand_id")), "left")
+                    .join(functions.broadcast(categoriesDF), productsDF.col("category").equalTo(categoriesDF.col("category_id")), "left");
             joinedDF = joinedDF.drop("brand", "category", "brand_id", "category_id");
-            joinedDF = joinedDF.withColumn("search_keywords", functions.concat_ws(" ", joinedDF.col("name"), joinedDF.col("brand_name"), joinedDF.col("category_name")));
+            joinedDF = joinedDF.withColumn("search_keywords", functions.concat_ws(" ", joinedDF.col("name"), joinedDF.col("brand_name"), joinedDF.col("category_name")))
+                    .persist(StorageLevel.fromString(storageLevel));
+            long products = joinedDF.count();
+            start = lap(timings, "load", start);
+
             joinedDF.write().format("org.elasticsearch.spark.sql").option("es.resource", PREVIEW_ALIAS + "/_doc").mode("append").save();
+            start = lap(timings, "catalog", start);
+            indexSuggestions(joinedDF);
+            start = lap(timings, "suggest", start);
             tagService.indexTags(joinedDF);
+            start = lap(timings, "tags", start);
+
+            indexGenerationService.finishBulkLoad(catalogIndex, CATALOG_SCHEMA);
+            indexGenerationService.finishBulkLoad(suggestIndex, SUGGEST_SCHEMA);
+            indexGenerationService.finishBulkLoad(tagsIndex, TAGS_SCHEMA);
+            lap(timings, "finish", start);
+            log.info("Indexed {} products, phase timings in ms: {}", products, timings);
         } catch (Exception e) {
-            log.error(e.getMessage(), e);
+            log.error("Indexing failed after phases {}: {}", timings, e.getMessage(), e);
+        } finally {
+            if (joinedDF != null) {
+                joinedDF.unpersist();
+            }
+            rebuilding.set(false);
         }
     }
 
+    private static long lap(Map<String, Long> timings, String phase, long start) {
+        long now = System.nanoTime();
+        timings.put(phase, TimeUnit.NANOSECONDS.toMillis(now - start));
+        return now;
+    }
+
+    /**
+     * Writes one completion entry per product to the preview suggest index. Its inputs are every token suffix of
+     * the name and of the search keywords (see {@link #suggestInputs}), with the category and brand as contexts
+     * and a weight ranking by rating, then stock (see {@link #suggestWeight}). The name itself is stored next to
+     * it, as the matched input is not necessarily the name.
+     */
+    private void indexSuggestions(Dataset<Row> joinedDF) {
+        Column weight = functions.round(functions.coalesce(joinedDF.col("rating"), functions.lit(0)).multiply(100)).cast("int").multiply(1000)
+                .plus(functions.greatest(functions.lit(0),
+                        functions.least(functions.coalesce(joinedDF.col("stock"), functions.lit(0)), functions.lit(MAX_STOCK_WEIGHT))));
+        UserDefinedFunction inputs = functions.udf(
+                (UDF2<String, String, List<String>>) SparkIndexService::suggestInputs, DataTypes.createArrayType(DataTypes.StringType));
+        Dataset<Row> suggestionsDF = joinedDF
+                .filter(joinedDF.col("name").isNotNull())
+                .select(joinedDF.col("product_id"), joinedDF.col("name"), functions.struct(
+                        inputs.apply(joinedDF.col("name"), joinedDF.col("search_keywords")).as("input"),
+                        weight.as("weight"),
+                        functions.struct(
+                                functions.array(suggestContext(joinedDF.col("category_name"))).as("category"),
+                                functions.array(suggestContext(joinedDF.col("brand_name"))).as("brand")
+                        ).as("contexts")
+                ).as("suggest"));
+        suggestionsDF.write().format("org.elasticsearch.spark.sql")
+                .option("es.resource", SUGGEST_PREVIEW_ALIAS + "/_doc")
+                .option("es.mapping.id", "product_id")
+                .mode("append").save();
+    }
+
+    private static Column suggestContext(Column value) {
+        return functions.lower(functions.coalesce(value, functions.lit(NO_CONTEXT)));
+    }
+
+    /**
+     * Completion only matches from the start of an input, so every token suffix of {@code name} and
+     * {@code keywords} is an input of its own: "iph" completes "Apple iPhone 13 Pro" through "iPhone 13 Pro".
+     */
+    static List<String> suggestInputs(String name, String keywords) {
+        Set<String> inputs = new LinkedHashSet<>();
+        addSuffixes(inputs, name);
+        addSuffixes(inputs, keywords);
+        return new ArrayList<>(inputs);
+    }
+
+    private static void addSuffixes(Set<String> inputs, String text) {
+        if (text == null || text.isBlank()) return;
+        String[] tokens = text.trim().split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            inputs.add(String.join(" ", Arrays.asList(tokens).subList(i, tokens.length)));
+        }
+    }
+
+    /**
+     * Same weight as {@link #indexSuggestions}: the rating rounded to two decimals, then the stock capped at
+     * {@value #MAX_STOCK_WEIGHT} as tie-breaker. The rating is widened to a double before rounding, as Spark
+     * reads it as one.
+     */
+    static int suggestWeight(Float rating, Integer stock) {
+        int ratingWeight = (int) Math.round((rating == null ? 0 : (double) rating) * 100) * 1000;
+        return ratingWeight + Math.max(0, Math.min(stock == null ? 0 : stock, MAX_STOCK_WEIGHT));
+    }
+
+    private static Map<String, Object> suggestDocument(ProductDto productDto) {
+        Map<String, Object> contexts = Map.of(
+                "category", List.of(suggestContext(productDto.getCategoryName())),
+                "brand", List.of(suggestContext(productDto.getBrandName())));
+        Map<String, Object> suggest = Map.of(
+                "input", suggestInputs(productDto.getName(), productDto.getSearchKeywords()),
+                "weight", suggestWeight(productDto.getRating(), productDto.getStock()),
+                "contexts", contexts);
+        return Map.of("product_id", productDto.getProductId(), "name", productDto.getName(), "suggest", suggest);
+    }
+
+    private static String suggestContext(String value) {
+        return value == null ? NO_CONTEXT : value.toLowerCase(Locale.ROOT);
+    }
+
     private Dataset<Row> loadJsonDataset(String resourcePath) throws Exception {
         URL resourceUrl = Thread.currentThread().getContextClassLoader().getResource(resourcePath);
         if (resourceUrl == null) throw new IllegalArgumentException("Resource not found: " + resourcePath);
@@ -86,6 +231,11 @@ public class SparkIndexService {
                     .id(productDto.getProductId())
                     .source(objectMapper.writeValueAsString(productDto), JSON);
             restHighLevelClient.index(indexRequest, DEFAULT);
+            if (productDto.getName() != null) {
+                restHighLevelClient.index(new IndexRequest(SUGGEST_PREVIEW_ALIAS)
+                        .id(productDto.getProductId())
+                        .source(suggestDocument(productDto)), DEFAULT);
+            }
             List<Map<String, Object>> docs = new ArrayList<>();
             if (productDto.getName() != null) {
                 docs.addAll(tagService.updateFieldSemanticTags("name", productDto.getName()));
@@ -108,29 +258,32 @@ public class SparkIndexService {
         }
     }
 
+    /**
+     * Swaps the preview and live aliases of the catalog and, in the same atomic request, of the suggest and tag
+     * indices, so typeahead and tag recognition always follow the catalog generation being served. The swap is
+     * refused while an index about to go live still has its bulk-load profile, and until they all reach the
+     * configured health status.
+     */
     public void swapCollections() {
-        GetAliasesRequest getReq = new GetAliasesRequest(PREVIEW_ALIAS, LIVE_ALIAS);
+        GetAliasesRequest getReq = new GetAliasesRequest(PREVIEW_ALIAS, LIVE_ALIAS, SUGGEST_PREVIEW_ALIAS, SUGGEST_LIVE_ALIAS,
+                TAGS_PREVIEW_ALIAS, TAGS_LIVE_ALIAS);
         GetAliasesResponse getRes;
         try {
             getRes = restHighLevelClient.indices().getAlias(getReq, DEFAULT);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        String liveIndex = null;
-        String previewIndex = null;
-        for (Map.Entry<String, Set<AliasMetaData>> entry : getRes.getAliases().entrySet()) {
-            if (!entry.getKey().startsWith(CATALOG_INDEX)) continue;
-            for (AliasMetaData amd : entry.getValue()) {
-                if (LIVE_ALIAS.equals(amd.alias())) liveIndex = entry.getKey();
-                if (PREVIEW_ALIAS.equals(amd.alias())) previewIndex = entry.getKey();
-            }
-        }
-        if (liveIndex == null || previewIndex == null) return;
         IndicesAliasesRequest req = new IndicesAliasesRequest();
-        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.REMOVE).alias(LIVE_ALIAS).index(liveIndex));
-        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.REMOVE).alias(PREVIEW_ALIAS).index(previewIndex));
-        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.ADD).alias(LIVE_ALIAS).index(previewIndex));
-        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.ADD).alias(PREVIEW_ALIAS).index(liveIndex));
+        List<String> goingLive = new ArrayList<>();
+        if (!addSwapActions(req, getRes, CATALOG_INDEX, PREVIEW_ALIAS, LIVE_ALIAS, goingLive)) return;
+        if (!addSwapActions(req, getRes, SUGGEST_INDEX, SUGGEST_PREVIEW_ALIAS, SUGGEST_LIVE_ALIAS, goingLive)) {
+            log.warn("Suggest aliases {} and {} not found, not swapping them", SUGGEST_PREVIEW_ALIAS, SUGGEST_LIVE_ALIAS);
+        }
+        if (!addSwapActions(req, getRes, TAGS_INDEX, TAGS_PREVIEW_ALIAS, TAGS_LIVE_ALIAS, goingLive)) {
+            log.warn("Tag aliases {} and {} not found, not swapping them", TAGS_PREVIEW_ALIAS, TAGS_LIVE_ALIAS);
+        }
+        indexGenerationService.requireServing(goingLive.toArray(String[]::new));
+        indexGenerationService.awaitHealthy(goingLive.toArray(String[]::new));
         try {
             restHighLevelClient.indices().updateAliases(req, DEFAULT);
         } catch (IOException e) {
@@ -138,16 +291,24 @@ public class SparkIndexService {
         }
     }
 
-    private void cleanIndex(String collection) {
-        try {
-            DeleteByQueryRequest request = new DeleteByQueryRequest(collection);
-            request.setQuery(QueryBuilders.matchAllQuery());
-            restHighLevelClient.deleteByQuery(request, RequestOptions.DEFAULT);
-            System.out.println("Cleaned index: " + collection);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to clean index", e);
+    private static boolean addSwapActions(IndicesAliasesRequest req, GetAliasesResponse getRes, String indexPrefix,
+                                          String previewAlias, String liveAlias, List<String> goingLive) {
+        String liveIndex = null;
+        String previewIndex = null;
+        for (Map.Entry<String, Set<AliasMetaData>> entry : getRes.getAliases().entrySet()) {
+            if (!entry.getKey().startsWith(indexPrefix)) continue;
+            for (AliasMetaData amd : entry.getValue()) {
+                if (liveAlias.equals(amd.alias())) liveIndex = entry.getKey();
+                if (previewAlias.equals(amd.alias())) previewIndex = entry.getKey();
+            }
         }
+        if (liveIndex == null || previewIndex == null) return false;
+        goingLive.add(previewIndex);
+        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.REMOVE).alias(liveAlias).index(liveIndex));
+        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.REMOVE).alias(previewAlias).index(previewIndex));
+        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.ADD).alias(liveAlias).index(previewIndex));
+        req.addAliasAction(new IndicesAliasesRequest.AliasActions(IndicesAliasesRequest.AliasActions.Type.ADD).alias(previewAlias).index(liveIndex));
+        return true;
     }
 
 }
@@ -0,0 +1,178 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.catalyst.encoders.RowEncoder;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.MapType;
+import org.apache.spark.sql.types.StructType;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Boolean.TRUE;
+import static java.util.Objects.isNull;
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.concat_ws;
+import static org.apache.spark.sql.functions.min;
+import static org.apache.spark.sql.functions.regexp_replace;
+
+/**
+ * Turns product field values into semantic tag documents following {@code tag-config.json}. It is serializable
+ * so the whole catalog can be tagged on the executors by {@link #extract}, and is also used directly for
+ * single documents.
+ */
+public class TagExtractor implements Serializable {
+
+    static final String DOCUMENT_ID = "doc_id";
+    static final String SOURCE_ID = "source_id";
+    static final StructType TAG_ROW_SCHEMA = new StructType()
+            .add("tag", DataTypes.StringType)
+            .add("field", DataTypes.StringType)
+            .add("type", DataTypes.StringType)
+            .add("weight", DataTypes.StringType)
+            .add(SOURCE_ID, DataTypes.StringType);
+    static final StructType TAG_SCHEMA = TAG_ROW_SCHEMA.add(DOCUMENT_ID, DataTypes.StringType);
+
+    private final Map<String, Map<String, Boolean>> tagConfig;
+
+    public TagExtractor(Map<String, Map<String, Boolean>> tagConfig) {
+        this.tagConfig = new HashMap<>(tagConfig);
+    }
+
+    /**
+     * Explodes every configured column of {@code products} into one row per tag, in the layout of
+     * {@link #TAG_SCHEMA}, deduplicated by {@code source_id}. Tags differing only in case share a
+     * {@code source_id}; the lowest one is kept so every run indexes the same document. Nothing is collected on
+     * the driver.
+     */
+    public Dataset<Row> extract(Dataset<Row> products) {
+        List<String> columns = Arrays.asList(products.columns());
+        Column[] fields = tagConfig.keySet().stream()
+                .filter(columns::contains)
+                .sorted()
+                .map(products::col)
+                .toArray(Column[]::new);
+        return products.select(fields)
+                .flatMap((FlatMapFunction<Row, Row>) this::tagRows, RowEncoder.apply(TAG_ROW_SCHEMA))
+                .groupBy(SOURCE_ID)
+                .agg(min("tag").as("tag"), min("field").as("field"), min("type").as("type"), min("weight").as("weight"))
+                .withColumn(DOCUMENT_ID, concat_ws("_", regexp_replace(col("tag"), " ", "_"), col("field"), col("type")))
+                .select(Arrays.stream(TAG_SCHEMA.fieldNames()).map(functions::col).toArray(Column[]::new));
+    }
+
+    public List<Map<String, Object>> tags(String fieldName, String fieldValue) {
+        if (isNull(fieldValue) || isNull(tagConfig.get(fieldName))) {
+            return List.of();
+        }
+        String snakeField = toSnake(fieldName);
+        return extractFieldSemanticTag(snakeField, fieldValue, snakeField);
+    }
+
+    public List<Map<String, Object>> tags(String fieldName, Map<String, String> fieldValue) {
+        if (isNull(fieldValue) || isNull(tagConfig.get(fieldName))) {
+            return List.of();
+        }
+        String snakeField = toSnake(fieldName);
+        if (TRUE.equals(tagConfig.get(fieldName).get("asMap"))) {
+            return fieldValue.entrySet().stream()
+                    .filter(entry -> entry.getValue() != null)
+                    .flatMap(entry -> extractFieldSemanticTag(snakeField + "." + toSnake(entry.getKey()), entry.getValue(), snakeField).stream())
+                    .toList();
+        }
+        return List.of();
+    }
+
+    /**
+     * Id of the tag document in {@code semantic-tags}, computed the same way by {@link #extract}.
+     */
+    static String documentId(String tag, String field, String tagType) {
+        return tag.replace(" ", "_") + "_" + field + "_" + tagType;
+    }
+
+    static String toSnake(String fieldName) {
+        return fieldName
+                .replaceAll("([A-Z])(?=[A-Z])", "$1_")
+                .replaceAll("([a-z])([A-Z])", "$1_$2")
+                .toLowerCase();
+    }
+
+    /**
+     * Tags of one product row, in the layout of {@link #TAG_ROW_SCHEMA}.
+     */
+    Iterator<Row> tagRows(Row product) {
+        List<Row> rows = new ArrayList<>();
+        StructType schema = product.schema();
+        for (int i = 0; i < schema.fields().length; i++) {
+            if (product.isNullAt(i)) {
+                continue;
+            }
+            String field = schema.fields()[i].name();
+            List<Map<String, Object>> tags;
+            if (TRUE.equals(tagConfig.get(field).get("asMap"))) {
+                tags = tags(field, schema.fields()[i].dataType() instanceof MapType
+                        ? toStrings(product.getJavaMap(i))
+                        : toStrings(product.getStruct(i)));
+            } else {
+                tags = tags(field, product.get(i).toString());
+            }
+            for (Map<String, Object> tag : tags) {
+                rows.add(RowFactory.create(tag.get("tag"), tag.get("field"), tag.get("type"), tag.get("weight"), tag.get(SOURCE_ID)));
+            }
+        }
+        return rows.iterator();
+    }
+
+    private static Map<String, String> toStrings(Row struct) {
+        Map<String, String> values = new HashMap<>();
+        for (String fieldName : struct.schema().fieldNames()) {
+            Object value = struct.getAs(fieldName);
+            if (value != null) {
+                values.put(fieldName, value.toString());
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, String> toStrings(Map<Object, Object> map) {
+        Map<String, String> values = new HashMap<>();
+        map.forEach((key, value) -> {
+            if (value != null) {
+                values.put(key.toString(), value.toString());
+            }
+        });
+        return values;
+    }
+
+    private List<Map<String, Object>> extractFieldSemanticTag(String fieldName, String fieldValue, String configName) {
+        List<Map<String, Object>> docs = new ArrayList<>();
+        if (TRUE.equals(tagConfig.get(configName).get("concept"))) {
+            docs.add(semanticTag(fieldValue, fieldName, "concept"));
+        }
+        if (TRUE.equals(tagConfig.get(configName).get("text"))) {
+            for (String token : fieldValue.toLowerCase().split("\\s+")) {
+                docs.add(semanticTag(token, fieldName, "text"));
+            }
+        }
+        return docs;
+    }
+
+    private static Map<String, Object> semanticTag(String tag, String field, String tagType) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("tag", tag);
+        doc.put("field", field);
+        doc.put("type", tagType);
+        doc.put("weight", "1");
+        doc.put(SOURCE_ID, tag.toLowerCase() + "_" + field + "_" + tagType);
+        return doc;
+    }
+}
@@ -2,150 +2,128 @@ package com.sradutataru.search.catalog.indexer.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.common.elasticsearch.ElasticsearchClientFactory;
+import com.sradutataru.search.catalog.common.elasticsearch.ElasticsearchClientProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.spark.SparkContext;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.function.ForeachPartitionFunction;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.apache.spark.util.CollectionAccumulator;
+import org.apache.spark.util.LongAccumulator;
 import org.elasticsearch.action.update.UpdateRequest;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-
-import static java.lang.Boolean.TRUE;
-import static java.util.Objects.isNull;
-import static java.util.stream.Collectors.toMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class TagService {
 
-    private static final String TAGS_INDEX = "semantic-tags";
+    private static final int REPORTED_FAILURES = 10;
 
-    private final RestHighLevelClient restHighLevelClient;
+    private final BulkWriter bulkWriter;
+    private final ElasticsearchClientProperties elasticsearchClientProperties;
 
-    private final Map<String, Map<String, Boolean>> tagConfig = loadTagConfig();
+    private final TagExtractor tagExtractor = new TagExtractor(loadTagConfig());
 
+    /**
+     * Extracts the tags of every product as a single Spark job and upserts them into the preview tag index
+     * from the executors, so driver memory does not grow with the catalog. Each partition writes through a
+     * {@link BulkWriter} session on a client of its own, one bulk at a time, and the tags are repartitioned to
+     * {@link BulkWriter#concurrentRequests()} partitions after the extraction, so that many bulks are in flight.
+     * Failed items are reported back to the driver, which fails the rebuild if there are any.
+     */
     public void indexTags(Dataset<Row> dataset) {
-        List<Map<String, Object>> allTags = new ArrayList<>();
-        for (Map.Entry<String, Map<String, Boolean>> entry : tagConfig.entrySet()) {
-            String field = entry.getKey();
-            Dataset<Row> fieldDs = dataset.select(field).distinct();
-            List<Row> rows = fieldDs.collectAsList();
+        SparkContext sparkContext = dataset.sparkSession().sparkContext();
+        LongAccumulator written = sparkContext.longAccumulator("semantic tags written");
+        LongAccumulator failed = sparkContext.longAccumulator("semantic tags failed");
+        CollectionAccumulator<String> failures = sparkContext.collectionAccumulator("semantic tag failures");
+        ElasticsearchClientProperties clientProperties = elasticsearchClientProperties;
+        BulkWriter.Settings settings = bulkWriter.settings().sequential();
+        long start = System.nanoTime();
+        tagExtractor.extract(dataset)
+                .repartition(bulkWriter.concurrentRequests())
+                .foreachPartition((ForeachPartitionFunction<Row>) tags ->
+                        writePartition(tags, clientProperties, settings, written, failed, failures));
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Bulk {}: {} tags written, {} failed by {} partitions in {} ms ({} docs/s)", SparkIndexService.TAGS_PREVIEW_ALIAS,
+                written.value(), failed.value(), bulkWriter.concurrentRequests(), tookMs,
+                tookMs == 0 ? written.value() : written.value() * 1000 / tookMs);
+        if (failed.value() > 0) {
+            failures.value().forEach(failure -> log.warn("Semantic tag failed: {}", failure));
+            throw new RuntimeException("Failed to bulk update " + failed.value() + " semantic tags");
+        }
+    }
 
-            if (TRUE.equals(entry.getValue().get("asMap"))) {
-                for (Row row : rows) {
-                    Object fieldValue = row.getAs(field);
-                    if (fieldValue instanceof Row) {
-                        Row mapRow = (Row) fieldValue;
-                        Map<String, String> attributesMap = new HashMap<>();
-                        for (String fieldName : mapRow.schema().fieldNames()) {
-                            Object value = mapRow.getAs(fieldName);
-                            if (value != null) {
-                                attributesMap.put(fieldName, value.toString());
-                            }
-                        }
-                        allTags.addAll(updateFieldSemanticTags(field, attributesMap));
-                    } else if (fieldValue instanceof Map) {
-                        allTags.addAll(updateFieldSemanticTags(field, (Map<String, String>) fieldValue));
-                    }
-                }
-            } else {
-                for (Row row : rows) {
-                    allTags.addAll(updateFieldSemanticTags(field, (String) row.getAs(field)));
-                }
+    /**
+     * Runs on an executor, so everything it needs is passed in serializable form and the client is built there.
+     * At most {@link #REPORTED_FAILURES} failures per partition are sent back to the driver.
+     */
+    private static void writePartition(Iterator<Row> tags, ElasticsearchClientProperties clientProperties,
+                                       BulkWriter.Settings settings, LongAccumulator written, LongAccumulator failed,
+                                       CollectionAccumulator<String> failures) throws IOException {
+        if (!tags.hasNext()) return;
+        String name = SparkIndexService.TAGS_PREVIEW_ALIAS + " partition " + TaskContext.getPartitionId();
+        BulkWriter.Result result;
+        try (ElasticsearchClientFactory factory = new ElasticsearchClientFactory(clientProperties);
+             RestHighLevelClient client = factory.create();
+             BulkWriter.Session session = BulkWriter.open(client, settings, name)) {
+            while (tags.hasNext()) {
+                session.add(upsert(tags.next()));
             }
+            result = session.close();
         }
-        bulkIndexTags(List.of(allTags
-                .stream()
-                .collect(toMap(tag -> tag.get("source_id"), Function.identity(), (a1, a2) -> a1))
-                .values().toArray(Map[]::new)));
+        written.add(result.succeeded());
+        failed.add(result.failures().size());
+        result.failures().stream()
+                .limit(REPORTED_FAILURES)
+                .forEach(failure -> failures.add(failure.id() + ": " + failure.message()));
     }
 
-    public List<Map<String, Object>> updateFieldSemanticTags(String fieldName, String fieldValue) {
-        if (isNull(fieldValue) || isNull(tagConfig.get(fieldName))) {
-            return List.of();
+    private static UpdateRequest upsert(Row tag) {
+        Map<String, Object> doc = new HashMap<>();
+        for (String field : TagExtractor.TAG_ROW_SCHEMA.fieldNames()) {
+            doc.put(field, tag.getAs(field));
         }
-        fieldName = toSnake(fieldName);
-        return extractFieldSemanticTag(fieldName, fieldValue, fieldName);
+        return new UpdateRequest(SparkIndexService.TAGS_PREVIEW_ALIAS, tag.getAs(TagExtractor.DOCUMENT_ID))
+                .doc(doc)
+                .upsert(doc);
+    }
+
+    public List<Map<String, Object>> updateFieldSemanticTags(String fieldName, String fieldValue) {
+        return tagExtractor.tags(fieldName, fieldValue);
     }
 
     public List<Map<String, Object>> updateFieldSemanticTags(String fieldName, Map<String, String> fieldValue) {
-        if (isNull(fieldValue) || isNull(tagConfig.get(fieldName))) {
-            return List.of();
-        }
-        String snakeField = toSnake(fieldName);
-        if(TRUE.equals(tagConfig.get(fieldName).get("asMap"))) {
-            return fieldValue.entrySet().stream()
-                    .flatMap(entry -> extractFieldSemanticTag(snakeField + "." + toSnake(entry.getKey()), entry.getValue(), snakeField).stream())
-                    .toList();
-        }
-        return List.of();
+        return tagExtractor.tags(fieldName, fieldValue);
     }
 
     public void bulkIndexTags(List<Map<String, Object>> docs) {
         if (docs.isEmpty()) return;
-        try {
-            var bulkRequest = new org.elasticsearch.action.bulk.BulkRequest();
+        BulkWriter.Result result;
+        try (BulkWriter.Session session = bulkWriter.open(SparkIndexService.TAGS_PREVIEW_ALIAS)) {
             for (Map<String, Object> doc : docs) {
-                String tag = (String) doc.get("tag");
-                String field = (String) doc.get("field");
-                String tagType = (String) doc.get("type");
-                String tagKey = tag.replace(" ", "_") + "_" + field + "_" + tagType;
-                bulkRequest.add(new UpdateRequest(TAGS_INDEX, tagKey)
+                String tagKey = TagExtractor.documentId((String) doc.get("tag"), (String) doc.get("field"), (String) doc.get("type"));
+                session.add(new UpdateRequest(SparkIndexService.TAGS_PREVIEW_ALIAS, tagKey)
                         .doc(doc)
                         .upsert(doc));
             }
-            BulkResponse bulkResponse = restHighLevelClient.bulk(bulkRequest, RequestOptions.DEFAULT);
-            log.debug("Bulk update semantic tags response status: {}", bulkResponse.status());
-        } catch (IOException e) {
-            log.error("Error bulk updating semantic tags: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to bulk update semantic tags", e);
+            result = session.close();
         }
-    }
-
-    private List<Map<String, Object>> extractFieldSemanticTag(String fieldName, String fieldValue, String configName) {
-        List<Map<String, Object>> docs = new ArrayList<>();
-        if (TRUE.equals(tagConfig.get(configName).get("concept"))) {
-            docs.addAll(indexConceptTags(fieldValue, fieldName));
+        if (result.hasFailures()) {
+            throw new RuntimeException("Failed to bulk update " + result.failures().size() + " semantic tags");
         }
-        if (TRUE.equals(tagConfig.get(configName).get("text"))) {
-            docs.addAll(indexTextTags(fieldValue, fieldName));
-        }
-        return docs;
-    }
-
-    private List<Map<String, Object>> indexTextTags(String fieldValue, String fieldName) {
-        List<Map<String, Object>> docs = new ArrayList<>();
-        String[] textTokens = fieldValue.toLowerCase().split("\\s+");
-        for (String token : textTokens) {
-            docs.add(indexOrUpdateSemanticTag(token, fieldName, "text"));
-        }
-        return docs;
-    }
-
-    private List<Map<String, Object>> indexConceptTags(String fieldValue, String fieldName) {
-        return List.of(indexOrUpdateSemanticTag(fieldValue, fieldName, "concept"));
-    }
-
-    private Map<String, Object> indexOrUpdateSemanticTag(String tag, String field, String tagType) {
-            String tagKey = tag.toLowerCase() + "_" + field + "_" + tagType;
-            Map<String, Object> doc = new HashMap<>();
-            doc.put("tag", tag);
-            doc.put("field", field);
-            doc.put("type", tagType);
-            doc.put("weight", "1");
-            doc.put("source_id", tagKey);
-            return doc;
     }
 
     Map<String, Map<String, Boolean>> loadTagConfig() {
@@ -156,11 +134,4 @@ public class TagService {
         }
     }
 
-    static String toSnake(String fieldName) {
-        return fieldName
-                .replaceAll("([A-Z])(?=[A-Z])", "$1_")
-                .replaceAll("([a-z])([A-Z])", "$1_$2")
-                .toLowerCase();
-    }
-
 }
@@ -0,0 +1,149 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class BulkWriterTest {
+
+    @Mock
+    private RestHighLevelClient client;
+
+    private BulkWriter bulkWriter;
+
+    private final List<Integer> bulkSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        bulkWriter = new BulkWriter(client);
+        ReflectionTestUtils.setField(bulkWriter, "bulkActions", 2);
+        ReflectionTestUtils.setField(bulkWriter, "bulkSizeMb", 5L);
+        ReflectionTestUtils.setField(bulkWriter, "flushIntervalMs", 60000L);
+        ReflectionTestUtils.setField(bulkWriter, "concurrentRequests", 1);
+        ReflectionTestUtils.setField(bulkWriter, "backoffInitialMs", 10L);
+        ReflectionTestUtils.setField(bulkWriter, "maxRetries", 0);
+        ReflectionTestUtils.setField(bulkWriter, "awaitCloseMs", 5000L);
+    }
+
+    @Test
+    void testClose_FlushesByActionCountAndReportsSuccesses() {
+        respondWith(request -> new BulkResponse(succeeded(request.numberOfActions()), 1));
+
+        BulkWriter.Result result;
+        try (BulkWriter.Session session = bulkWriter.open("tags")) {
+            session.add(update("a")).add(update("b")).add(update("c"));
+            result = session.close();
+        }
+
+        assertEquals(List.of(2, 1), bulkSizes);
+        assertEquals(3, result.succeeded());
+        assertFalse(result.hasFailures());
+        assertTrue(result.bytes() > 0);
+    }
+
+    @Test
+    void testClose_CollectsItemFailures() {
+        respondWith(request -> {
+            BulkItemResponse[] items = succeeded(request.numberOfActions());
+            items[0] = new BulkItemResponse(0, DocWriteRequest.OpType.UPDATE,
+                    new BulkItemResponse.Failure("semantic-tags", "_doc", "a", new IllegalArgumentException("mapper_parsing_exception")));
+            return new BulkResponse(items, 1);
+        });
+
+        BulkWriter.Result result;
+        try (BulkWriter.Session session = bulkWriter.open("tags")) {
+            session.add(update("a")).add(update("b"));
+            result = session.close();
+        }
+
+        assertEquals(1, result.succeeded());
+        assertTrue(result.hasFailures());
+        assertEquals("a", result.failures().get(0).id());
+        assertTrue(result.failures().get(0).message().contains("mapper_parsing_exception"));
+    }
+
+    @Test
+    void testClose_FailedBulkFailsEveryItem() {
+        doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            bulkSizes.add(request.numberOfActions());
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onFailure(new IOException("connection reset"));
+            return null;
+        }).when(client).bulkAsync(any(BulkRequest.class), any(), any());
+
+        BulkWriter.Result result;
+        try (BulkWriter.Session session = bulkWriter.open("tags")) {
+            session.add(update("a"));
+            result = session.close();
+        }
+
+        assertEquals(0, result.succeeded());
+        assertEquals(1, result.failures().size());
+        assertEquals("connection reset", result.failures().get(0).message());
+    }
+
+    @Test
+    void testOpen_ExecutorSessionUsesGivenClientAndSettings() {
+        respondWith(request -> new BulkResponse(succeeded(request.numberOfActions()), 1));
+        BulkWriter.Settings settings = bulkWriter.settings().sequential();
+
+        BulkWriter.Result result;
+        try (BulkWriter.Session session = BulkWriter.open(client, settings, "tags partition 0")) {
+            session.add(update("a")).add(update("b")).add(update("c"));
+            result = session.close();
+        }
+
+        assertEquals(1, settings.concurrentRequests());
+        assertEquals(2, settings.bulkActions());
+        assertEquals(List.of(2, 1), bulkSizes);
+        assertEquals(3, result.succeeded());
+    }
+
+    private void respondWith(Function<BulkRequest, BulkResponse> response) {
+        doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            bulkSizes.add(request.numberOfActions());
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onResponse(response.apply(request));
+            return null;
+        }).when(client).bulkAsync(any(BulkRequest.class), any(), any());
+    }
+
+    private static BulkItemResponse[] succeeded(int count) {
+        BulkItemResponse[] items = new BulkItemResponse[count];
+        for (int i = 0; i < count; i++) {
+            items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.UPDATE, (DocWriteResponse) null);
+        }
+        return items;
+    }
+
+    private static UpdateRequest update(String id) {
+        Map<String, Object> doc = Map.of("tag", id);
+        return new UpdateRequest("semantic-tags", id).doc(doc).upsert(doc);
+    }
+}
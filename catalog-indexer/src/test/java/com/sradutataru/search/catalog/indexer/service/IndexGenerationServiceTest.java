@@ -0,0 +1,187 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequest;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.ClusterClient;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.IndicesClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.GetIndexResponse;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class IndexGenerationServiceTest {
+
+    @Mock
+    private RestHighLevelClient client;
+
+    @Mock
+    private IndicesClient indicesClient;
+
+    @Mock
+    private ClusterClient clusterClient;
+
+    private IndexGenerationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IndexGenerationService(client, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "retainedGenerations", 1);
+        ReflectionTestUtils.setField(service, "bulkLoadEnabled", true);
+        lenient().when(client.indices()).thenReturn(indicesClient);
+    }
+
+    @Test
+    void testCreatePreview_CreatesBulkLoadIndexAndMovesPreviewAlias() throws IOException {
+        GetAliasesResponse aliases = mock(GetAliasesResponse.class);
+        when(aliases.getAliases()).thenReturn(Map.of(
+                "semantic-tags_a", Set.of(AliasMetaData.builder("semantic-tags_preview").build()),
+                "other_index", Set.of(AliasMetaData.builder("semantic-tags_preview").build())));
+        when(indicesClient.getAlias(any(GetAliasesRequest.class), any())).thenReturn(aliases);
+        when(indicesClient.get(any(GetIndexRequest.class), any())).thenReturn(indexResponse(Map.of(), Map.of()));
+
+        String index = service.createPreview("semantic-tags", "semantic-tags-schema_A.json", "semantic-tags_preview", "20240101000000000");
+
+        assertEquals("semantic-tags_20240101000000000", index);
+        ArgumentCaptor<CreateIndexRequest> create = ArgumentCaptor.forClass(CreateIndexRequest.class);
+        verify(indicesClient).create(create.capture(), any());
+        assertEquals("semantic-tags_20240101000000000", create.getValue().index());
+        assertTrue(create.getValue().aliases().isEmpty());
+        assertEquals("-1", create.getValue().settings().get("index.refresh_interval"));
+        assertEquals("0", create.getValue().settings().get("index.number_of_replicas"));
+        assertEquals("async", create.getValue().settings().get("index.translog.durability"));
+
+        ArgumentCaptor<IndicesAliasesRequest> update = ArgumentCaptor.forClass(IndicesAliasesRequest.class);
+        verify(indicesClient).updateAliases(update.capture(), any());
+        List<IndicesAliasesRequest.AliasActions> actions = update.getValue().getAliasActions();
+        assertEquals(2, actions.size());
+        assertEquals(IndicesAliasesRequest.AliasActions.Type.REMOVE, actions.get(0).actionType());
+        assertArrayEquals(new String[]{"semantic-tags_a"}, actions.get(0).indices());
+        assertEquals(IndicesAliasesRequest.AliasActions.Type.ADD, actions.get(1).actionType());
+        assertArrayEquals(new String[]{"semantic-tags_20240101000000000"}, actions.get(1).indices());
+    }
+
+    @Test
+    void testCollectGarbage_KeepsAliasedAndNewestUnaliasedGenerations() throws IOException {
+        GetIndexResponse response = indexResponse(
+                Map.of("catalog-index_a", List.of(AliasMetaData.builder("catalog-index_live").build()),
+                        "catalog-index_1", List.of(),
+                        "catalog-index_2", List.of()),
+                Map.of("catalog-index_a", "100", "catalog-index_1", "200", "catalog-index_2", "300", "catalog-index_3", "50"));
+        when(response.getIndices()).thenReturn(new String[]{"catalog-index_a", "catalog-index_1", "catalog-index_2", "catalog-index_3"});
+        when(indicesClient.get(any(GetIndexRequest.class), any())).thenReturn(response);
+
+        service.collectGarbage("catalog-index");
+
+        ArgumentCaptor<DeleteIndexRequest> delete = ArgumentCaptor.forClass(DeleteIndexRequest.class);
+        verify(indicesClient).delete(delete.capture(), any());
+        assertArrayEquals(new String[]{"catalog-index_1", "catalog-index_3"}, delete.getValue().indices());
+    }
+
+    @Test
+    void testCollectGarbage_NothingExpired() throws IOException {
+        GetIndexResponse response = indexResponse(Map.of("catalog-index_1", List.of()), Map.of("catalog-index_1", "200"));
+        when(response.getIndices()).thenReturn(new String[]{"catalog-index_1"});
+        when(indicesClient.get(any(GetIndexRequest.class), any())).thenReturn(response);
+
+        service.collectGarbage("catalog-index");
+
+        verify(indicesClient, never()).delete(any(DeleteIndexRequest.class), any());
+    }
+
+    @Test
+    void testFinishBulkLoad_RestoresSchemaSettingsCappedToDataNodes() throws IOException {
+        when(client.cluster()).thenReturn(clusterClient);
+        ClusterHealthResponse health = mock(ClusterHealthResponse.class);
+        when(health.getNumberOfDataNodes()).thenReturn(1);
+        when(clusterClient.health(any(ClusterHealthRequest.class), any())).thenReturn(health);
+
+        service.finishBulkLoad("semantic-tags_1", "semantic-tags-schema_A.json");
+
+        ArgumentCaptor<UpdateSettingsRequest> update = ArgumentCaptor.forClass(UpdateSettingsRequest.class);
+        verify(indicesClient).putSettings(update.capture(), any());
+        assertEquals("30s", update.getValue().settings().get("index.refresh_interval"));
+        assertEquals("0", update.getValue().settings().get("index.number_of_replicas"));
+        assertEquals("request", update.getValue().settings().get("index.translog.durability"));
+    }
+
+    @Test
+    void testFinishBulkLoad_KeepsSchemaReplicasWhenNodesAllow() throws IOException {
+        when(client.cluster()).thenReturn(clusterClient);
+        ClusterHealthResponse health = mock(ClusterHealthResponse.class);
+        when(health.getNumberOfDataNodes()).thenReturn(3);
+        when(clusterClient.health(any(ClusterHealthRequest.class), any())).thenReturn(health);
+
+        service.finishBulkLoad("catalog-index_1", "catalog-index-schema_A.json");
+
+        ArgumentCaptor<UpdateSettingsRequest> update = ArgumentCaptor.forClass(UpdateSettingsRequest.class);
+        verify(indicesClient).putSettings(update.capture(), any());
+        assertEquals("30s", update.getValue().settings().get("index.refresh_interval"));
+        assertEquals("1", update.getValue().settings().get("index.number_of_replicas"));
+    }
+
+    @Test
+    void testRequireServing_RejectsIndexStillInBulkLoadProfile() throws IOException {
+        GetSettingsResponse settings = mock(GetSettingsResponse.class);
+        when(settings.getSetting("catalog-index_1", "index.refresh_interval")).thenReturn("30s");
+        when(settings.getSetting("catalog-suggest_1", "index.refresh_interval")).thenReturn("-1");
+        when(indicesClient.getSettings(any(GetSettingsRequest.class), any())).thenReturn(settings);
+
+        assertThrows(RuntimeException.class, () -> service.requireServing("catalog-index_1", "catalog-suggest_1"));
+    }
+
+    @Test
+    void testRequireServing_AcceptsServingIndices() throws IOException {
+        GetSettingsResponse settings = mock(GetSettingsResponse.class);
+        when(settings.getSetting("catalog-index_1", "index.refresh_interval")).thenReturn("30s");
+        when(indicesClient.getSettings(any(GetSettingsRequest.class), any())).thenReturn(settings);
+
+        service.requireServing("catalog-index_1");
+    }
+
+    @Test
+    void testNewGeneration_HasMillisecondResolution() {
+        assertTrue(IndexGenerationService.newGeneration().matches("\\d{17}"));
+    }
+
+    private static GetIndexResponse indexResponse(Map<String, List<AliasMetaData>> aliases, Map<String, String> creationDates) {
+        GetIndexResponse response = mock(GetIndexResponse.class, withSettings().lenient());
+        when(response.getAliases()).thenReturn(aliases);
+        when(response.getIndices()).thenReturn(aliases.keySet().toArray(String[]::new));
+        creationDates.forEach((index, date) -> when(response.getSetting(index, "index.creation_date")).thenReturn(date));
+        return response;
+    }
+}
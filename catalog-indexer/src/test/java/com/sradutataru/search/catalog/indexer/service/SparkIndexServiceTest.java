@@ -0,0 +1,35 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparkIndexServiceTest {
+
+    @Test
+    void testSuggestInputs_MidNameTokensStartAnInput() {
+        List<String> inputs = SparkIndexService.suggestInputs("Apple iPhone 13 Pro", "Apple iPhone 13 Pro Apple Smartphones");
+
+        assertEquals("Apple iPhone 13 Pro", inputs.get(0));
+        assertTrue(inputs.stream().anyMatch(input -> input.toLowerCase(Locale.ROOT).startsWith("iph")));
+        assertTrue(inputs.contains("Smartphones"));
+    }
+
+    @Test
+    void testSuggestInputs_DeduplicatesAndSkipsBlanks() {
+        assertEquals(List.of("Sony WH-1000XM5", "WH-1000XM5"), SparkIndexService.suggestInputs(" Sony  WH-1000XM5 ", "WH-1000XM5"));
+        assertEquals(List.of(), SparkIndexService.suggestInputs(null, " "));
+    }
+
+    @Test
+    void testSuggestWeight_RoundsRatingLikeSpark() {
+        assertEquals(470150, SparkIndexService.suggestWeight(4.7f, 150));
+        assertEquals(320000, SparkIndexService.suggestWeight(3.2f, -5));
+        assertEquals(500999, SparkIndexService.suggestWeight(5.0f, 2000));
+        assertEquals(0, SparkIndexService.suggestWeight(null, null));
+    }
+}
@@ -0,0 +1,74 @@
+package com.sradutataru.search.catalog.indexer.service;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.catalyst.expressions.GenericRowWithSchema;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TagExtractorTest {
+
+    private final TagExtractor tagExtractor = new TagExtractor(Map.of(
+            "name", Map.of("concept", true, "text", true, "shingle", true),
+            "category_name", Map.of("concept", true, "text", false, "shingle", false),
+            "attributes", Map.of("concept", true, "asMap", true)));
+
+    @Test
+    void testTags_ConceptKeepsCaseAndTextTokensAreLowercased() {
+        assertEquals(List.of(
+                tag("Apple iPhone", "name", "concept", "apple iphone_name_concept"),
+                tag("apple", "name", "text", "apple_name_text"),
+                tag("iphone", "name", "text", "iphone_name_text")), tagExtractor.tags("name", "Apple iPhone"));
+    }
+
+    @Test
+    void testTags_AttributesBecomeSnakeCasedConcepts() {
+        assertEquals(List.of(tag("6.1 in", "attributes.screen_size", "concept", "6.1 in_attributes.screen_size_concept")),
+                tagExtractor.tags("attributes", Map.of("screenSize", "6.1 in")));
+    }
+
+    @Test
+    void testTags_UnconfiguredFieldHasNoTags() {
+        assertEquals(List.of(), tagExtractor.tags("description", "Apple iPhone"));
+        assertEquals(List.of(), tagExtractor.tags("name", (String) null));
+    }
+
+    @Test
+    void testTagRows_StructAttributesAndNullsMatchSingleDocumentTags() {
+        StructType attributesSchema = new StructType()
+                .add("screenSize", DataTypes.StringType)
+                .add("color", DataTypes.StringType);
+        StructType productSchema = new StructType()
+                .add("name", DataTypes.StringType)
+                .add("category_name", DataTypes.StringType)
+                .add("attributes", attributesSchema);
+        Row product = new GenericRowWithSchema(new Object[]{"Apple iPhone", "Phones",
+                new GenericRowWithSchema(new Object[]{"6.1 in", null}, attributesSchema)}, productSchema);
+
+        List<Row> rows = new ArrayList<>();
+        tagExtractor.tagRows(product).forEachRemaining(rows::add);
+
+        assertEquals(List.of(
+                RowFactory.create("Apple iPhone", "name", "concept", "1", "apple iphone_name_concept"),
+                RowFactory.create("apple", "name", "text", "1", "apple_name_text"),
+                RowFactory.create("iphone", "name", "text", "1", "iphone_name_text"),
+                RowFactory.create("Phones", "category_name", "concept", "1", "phones_category_name_concept"),
+                RowFactory.create("6.1 in", "attributes.screen_size", "concept", "1", "6.1 in_attributes.screen_size_concept")), rows);
+    }
+
+    @Test
+    void testDocumentId_ReplacesSpacesInTag() {
+        assertEquals("Apple_iPhone_name_concept", TagExtractor.documentId("Apple iPhone", "name", "concept"));
+    }
+
+    private static Map<String, Object> tag(String tag, String field, String type, String sourceId) {
+        return Map.of("tag", tag, "field", field, "type", type, "weight", "1", "source_id", sourceId);
+    }
+}
@@ -1,49 +1,34 @@
 package com.sradutataru.search.catalog.service.config;
 
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.nio.reactor.IOReactorConfig;
-import org.elasticsearch.client.RestClient;
+import com.sradutataru.search.catalog.common.elasticsearch.ElasticsearchClientFactory;
+import com.sradutataru.search.catalog.common.elasticsearch.ElasticsearchClientMetrics;
+import com.sradutataru.search.catalog.common.elasticsearch.ElasticsearchClientProperties;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class ElasticsearchConfig {
 
-    @Value("${spring.elasticsearch.host:localhost}")
-    private String esHost;
-
-    @Value("${spring.elasticsearch.port:9200}")
-    private int esPort;
-
-    @Value("${spring.elasticsearch.scheme:http}")
-    private String esScheme;
-
-    @Value("${spring.elasticsearch.username:elastic}")
-    private String esUsername;
+    @Bean
+    @ConfigurationProperties(prefix = "spring.elasticsearch")
+    public ElasticsearchClientProperties elasticsearchClientProperties() {
+        return new ElasticsearchClientProperties();
+    }
 
-    @Value("${spring.elasticsearch.password:elastic}")
-    private String esPassword;
+    @Bean(destroyMethod = "close")
+    public ElasticsearchClientFactory elasticsearchClientFactory(ElasticsearchClientProperties properties) {
+        return new ElasticsearchClientFactory(properties);
+    }
 
     @Bean
-    public RestHighLevelClient restHighLevelClient() {
-        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        credentialsProvider.setCredentials(
-                AuthScope.ANY,
-                new UsernamePasswordCredentials(esUsername, esPassword)
-        );
+    public RestHighLevelClient restHighLevelClient(ElasticsearchClientFactory elasticsearchClientFactory) {
+        return elasticsearchClientFactory.create();
+    }
 
-        return new RestHighLevelClient(
-                RestClient.builder(new HttpHost(esHost, esPort, esScheme))
-                        .setHttpClientConfigCallback(
-                                httpClientBuilder -> httpClientBuilder
-                                        .setDefaultCredentialsProvider(credentialsProvider)
-                                        .setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(4).build())
-                                )
-                        );
+    @Bean
+    public ElasticsearchClientMetrics elasticsearchClientMetrics(ElasticsearchClientFactory elasticsearchClientFactory) {
+        return new ElasticsearchClientMetrics(elasticsearchClientFactory);
     }
 }
@@ -0,0 +1,62 @@
+package com.sradutataru.search.catalog.service.config;
+
+import com.sradutataru.search.catalog.service.service.SearchEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "catalog.search.cache")
+public class SearchCacheProperties {
+
+    /**
+     * Approximate heap budget shared by every cached endpoint, in bytes.
+     */
+    private long maximumWeightBytes = 64L * 1024 * 1024;
+
+    /**
+     * How often the live alias is checked for a swap.
+     */
+    private long aliasPollIntervalMs = 5000;
+
+    private Map<SearchEndpoint, EndpointCache> endpoints = defaultEndpoints();
+
+    /**
+     * Gives the endpoints missing from the configuration their defaults once bound, so {@link #endpoint} never
+     * modifies the map while requests read it.
+     */
+    @PostConstruct
+    public void init() {
+        Map<SearchEndpoint, EndpointCache> complete = new EnumMap<>(SearchEndpoint.class);
+        complete.putAll(endpoints);
+        for (SearchEndpoint endpoint : SearchEndpoint.values()) {
+            complete.putIfAbsent(endpoint, new EndpointCache());
+        }
+        endpoints = complete;
+    }
+
+    public EndpointCache endpoint(SearchEndpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    private static Map<SearchEndpoint, EndpointCache> defaultEndpoints() {
+        Map<SearchEndpoint, EndpointCache> endpoints = new EnumMap<>(SearchEndpoint.class);
+        for (SearchEndpoint endpoint : SearchEndpoint.values()) {
+            endpoints.put(endpoint, new EndpointCache());
+        }
+        return endpoints;
+    }
+
+    @Data
+    public static class EndpointCache {
+
+        private boolean enabled = true;
+
+        private long ttlMs = 60000;
+    }
+}
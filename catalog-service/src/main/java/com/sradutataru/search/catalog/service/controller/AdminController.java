@@ -0,0 +1,51 @@
+package com.sradutataru.search.catalog.service.controller;
+
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import com.sradutataru.search.catalog.service.service.SemanticConfigService;
+import com.sradutataru.search.catalog.service.service.SemanticPlan;
+import com.sradutataru.search.catalog.service.service.TagDictionary;
+import com.sradutataru.search.catalog.service.service.TagDictionaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+public class AdminController implements AdminControllerInterface {
+
+    private final TagDictionaryService tagDictionaryService;
+    private final SemanticConfigService semanticConfigService;
+
+    @Override
+    @PostMapping("/tags/refresh")
+    public ResponseEntity<String> refreshTags() {
+        TagDictionary dictionary = tagDictionaryService.refresh();
+        return ResponseEntity.ok("Tag dictionary generation " + dictionary.getGeneration() + " loaded with " + dictionary.size() + " tags.");
+    }
+
+    @Override
+    @PostMapping("/semantic-config/reload")
+    public ResponseEntity<String> reloadSemanticConfig() {
+        SemanticPlan plan = semanticConfigService.reload();
+        return ResponseEntity.ok("Semantic configuration reloaded with " + plan.getStages().size() + " stages.");
+    }
+
+    @Override
+    @GetMapping("/tags")
+    public ResponseEntity<List<TagDto>> lookupTags(
+            @RequestParam String prefix,
+            @RequestParam(required = false, defaultValue = "20") Integer limit
+    ) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return ResponseEntity.ok(tagDictionaryService.current().prefix(prefix, limit));
+    }
+}
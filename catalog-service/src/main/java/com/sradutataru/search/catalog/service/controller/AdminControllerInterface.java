@@ -0,0 +1,53 @@
+package com.sradutataru.search.catalog.service.controller;
+
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.annotations.Example;
+import io.swagger.annotations.ExampleProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+@Api(value = "Admin API", tags = {"Admin"})
+public interface AdminControllerInterface {
+
+    @ApiOperation(value = "Refresh tag dictionary",
+            notes = "Reloads the in-memory tag dictionary from the semantic-tags index. " +
+                    "The dictionary generation only changes when the index content changed.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Tag dictionary refreshed", examples = @Example(value = {
+                    @ExampleProperty(mediaType = "application/json", value = "Tag dictionary generation 3 loaded with 1250 tags.")
+            })),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    ResponseEntity<String> refreshTags();
+
+    @ApiOperation(value = "Reload semantic configuration",
+            notes = "Recompiles the semantic stage plan from the configured location without a restart. " +
+                    "The current plan is kept if the new configuration is invalid.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Semantic configuration reloaded", examples = @Example(value = {
+                    @ExampleProperty(mediaType = "application/json", value = "Semantic configuration reloaded with 3 stages.")
+            })),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    ResponseEntity<String> reloadSemanticConfig();
+
+    @ApiOperation(value = "Look up tags by prefix",
+            notes = "Returns the tags of the in-memory dictionary starting with the given prefix, ignoring case.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully retrieved tags", response = TagDto.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "Invalid input provided")
+    })
+    ResponseEntity<List<TagDto>> lookupTags(
+            @ApiParam(value = "Tag prefix", required = true, example = "iph")
+            @RequestParam String prefix,
+            @ApiParam(value = "Maximum number of tags to return", example = "20")
+            @RequestParam Integer limit
+    );
+}
@@ -1,16 +1,25 @@
 package com.sradutataru.search.catalog.service.controller;
 
+import com.sradutataru.search.catalog.service.dto.BatchSearchItem;
+import com.sradutataru.search.catalog.service.dto.BatchSearchResult;
+import com.sradutataru.search.catalog.service.service.ExportService;
 import com.sradutataru.search.catalog.service.service.ProductService;
 import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import com.sradutataru.search.catalog.service.dto.SemanticDebugResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.stream.Collectors.*;
 
@@ -19,38 +28,78 @@ import static java.util.stream.Collectors.*;
 @RequiredArgsConstructor
 public class ProductController implements ProductControllerInterface {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ProductService productService;
+    private final ExportService exportService;
 
 
     @GetMapping("/keyword-search")
     @Override
-    public ResponseEntity<ProductResponse> keywordSearch(
+    public CompletableFuture<ResponseEntity<ProductResponse>> keywordSearch(
             @RequestParam String q,
             @RequestParam(required = false, defaultValue = "10") Integer count,
             @RequestParam(required = false, defaultValue = "1") Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields,
             @RequestParam Map<String, String> allParams) {
-        return ResponseEntity.ok(productService.keywordSearch(q, count, page, extractAttributes(allParams)));
+        return productService.keywordSearchAsync(q, count, page, cursor, fields, extractAttributes(allParams)).thenApply(ResponseEntity::ok);
     }
 
     @Override
     @GetMapping("/semantic-search")
-    public ResponseEntity<ProductResponse> semanticSearch(
+    public CompletableFuture<ResponseEntity<ProductResponse>> semanticSearch(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "10") Integer count,
+            @RequestParam(required = false, defaultValue = "1") Integer page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String fields,
+            @RequestParam Map<String, String> allParams
+    ) {
+        return productService.semanticSearchV2Async(q, count, page, cursor, fields, extractAttributes(allParams)).thenApply(ResponseEntity::ok);
+    }
+
+    @Override
+    @GetMapping("/semantic-search/debug")
+    public ResponseEntity<SemanticDebugResponse> semanticSearchDebug(
             @RequestParam String q,
             @RequestParam(required = false, defaultValue = "10") Integer count,
             @RequestParam(required = false, defaultValue = "1") Integer page,
             @RequestParam Map<String, String> allParams
     ) {
-        ProductResponse products = productService.semanticSearchV2(q, count, page, extractAttributes(allParams));
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok(productService.semanticSearchDebug(q, count, page, extractAttributes(allParams)));
     }
 
     @Override
     @GetMapping("/typeahead")
-    public ResponseEntity<List<String>> typeaheadSearch(
-            @RequestParam String q
+    public CompletableFuture<ResponseEntity<List<String>>> typeaheadSearch(
+            @RequestParam String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand
     ) {
-        List<String> suggestions = productService.typeaheadSearch(q);
-        return ResponseEntity.ok(suggestions);
+        return productService.typeaheadSearchAsync(q, category, brand).thenApply(ResponseEntity::ok);
+    }
+
+    @Override
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String fields,
+            @RequestParam Map<String, String> allParams,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType(NDJSON);
+        exportService.exportProducts(q, fields, extractAttributes(allParams),
+                totalHits -> response.setHeader("X-Total-Count", String.valueOf(totalHits)), response.getOutputStream());
+    }
+
+    @Override
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<BatchSearchResult>>> batchSearch(@RequestBody List<BatchSearchItem> searches) {
+        searches.stream()
+                .filter(search -> search != null && search.getAttributes() != null)
+                .forEach(search -> search.setAttributes(extractAttributes(search.getAttributes())));
+        return productService.batchSearch(searches).thenApply(ResponseEntity::ok);
     }
 
     private static Map<String, String> extractAttributes(Map<String, String> allParams) {
@@ -1,6 +1,9 @@
 package com.sradutataru.search.catalog.service.controller;
 
+import com.sradutataru.search.catalog.service.dto.BatchSearchItem;
+import com.sradutataru.search.catalog.service.dto.BatchSearchResult;
 import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import com.sradutataru.search.catalog.service.dto.SemanticDebugResponse;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -10,10 +13,15 @@ import io.swagger.annotations.Example;
 import io.swagger.annotations.ExampleProperty;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Api(value = "Product API", tags = {"Products"})
 public interface ProductControllerInterface {
@@ -25,13 +33,18 @@ public interface ProductControllerInterface {
             @ApiResponse(code = 400, message = "Invalid input provided"),
             @ApiResponse(code = 500, message = "Internal server error")
     })
-    ResponseEntity<ProductResponse> keywordSearch(
+    CompletableFuture<ResponseEntity<ProductResponse>> keywordSearch(
             @ApiParam(value = "Search keyword", required = true, example = "wireless earbuds")
             @RequestParam String q,
             @ApiParam(value = "Number of results per page", required = true, example = "10")
             @RequestParam Integer count,
             @ApiParam(value = "Page number, starts at 1", required = true, example = "1")
             @RequestParam Integer page,
+            @ApiParam(value = "Continuation token from the nextCursor of the previous response; replaces page for deep paging", required = false)
+            @RequestParam(required = false) String cursor,
+            @ApiParam(value = "Product fields to return: a preset ('listing' or 'full') or a comma-separated list of fields, " +
+                    "e.g. name,price,rating. product_id is always returned; defaults to full", required = false, example = "listing")
+            @RequestParam(required = false) String fields,
             @ApiParam(value = "Additional attribute filters. Keys must be prefixed with 'attributes.' (e.g., attributes.color=black)", required = false)
             @RequestParam Map<String, String> allParams);
 
@@ -45,7 +58,34 @@ public interface ProductControllerInterface {
             @ApiResponse(code = 500, message = "Internal server error")
     })
     @GetMapping("/semantic-search")
-    ResponseEntity<ProductResponse> semanticSearch(
+    CompletableFuture<ResponseEntity<ProductResponse>> semanticSearch(
+            @ApiParam(value = "Search query string", required = true, example = "wireless earbuds")
+            @RequestParam String q,
+            @ApiParam(value = "Number of results per page", required = true, example = "10")
+            @RequestParam Integer count,
+            @ApiParam(value = "Page number, starts at 1", required = true, example = "1")
+            @RequestParam Integer page,
+            @ApiParam(value = "Continuation token from the nextCursor of the previous response; replaces page for deep paging", required = false)
+            @RequestParam(required = false) String cursor,
+            @ApiParam(value = "Product fields to return: a preset ('listing' or 'full') or a comma-separated list of fields, " +
+                    "e.g. name,price,rating. product_id is always returned; defaults to full", required = false, example = "listing")
+            @RequestParam(required = false) String fields,
+            @ApiParam(value = "Additional attribute filters. Keys must be prefixed with 'attributes.' (e.g., attributes.color=black)", required = false)
+            @RequestParam Map<String, String> allParams
+    );
+
+    @ApiOperation(value = "Debug semantic search",
+            notes = "Runs the semantic search with scoring explanations enabled and returns, next to the usual response, " +
+                    "the recognised tags, the generated query of every stage tried, per-stage timings and the " +
+                    "explanation of every hit. Only available when catalog.semantic.debug.enabled is set.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully retrieved products and diagnostics", response = SemanticDebugResponse.class),
+            @ApiResponse(code = 400, message = "Invalid input provided"),
+            @ApiResponse(code = 404, message = "Debug mode disabled"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @GetMapping("/semantic-search/debug")
+    ResponseEntity<SemanticDebugResponse> semanticSearchDebug(
             @ApiParam(value = "Search query string", required = true, example = "wireless earbuds")
             @RequestParam String q,
             @ApiParam(value = "Number of results per page", required = true, example = "10")
@@ -58,7 +98,8 @@ public interface ProductControllerInterface {
 
     @ApiOperation(value = "Typeahead search",
             notes = "This endpoint returns a list of product name suggestions matching the provided prefix. " +
-                    "It searches only on the product name field from the live collection and does not accept attribute filters.")
+                    "Names are completed from the suggest index built next to the live collection, best rated and " +
+                    "stocked products first, and can be narrowed to a category or brand. Attribute filters are not accepted.")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully retrieved suggestions",
                     examples = @Example(value = {
@@ -68,8 +109,48 @@ public interface ProductControllerInterface {
             @ApiResponse(code = 500, message = "Internal server error")
     })
     @GetMapping("/typeahead")
-    ResponseEntity<List<String>> typeaheadSearch(
+    CompletableFuture<ResponseEntity<List<String>>> typeaheadSearch(
             @ApiParam(value = "Search prefix string for typeahead suggestions", required = true, example = "iph")
-            @RequestParam String q
+            @RequestParam String q,
+            @ApiParam(value = "Only suggest products of this category", required = false, example = "Smartphones")
+            @RequestParam(required = false) String category,
+            @ApiParam(value = "Only suggest products of this brand", required = false, example = "Apple")
+            @RequestParam(required = false) String brand
+    );
+
+    @ApiOperation(value = "Export products",
+            notes = "Streams every product matching the keyword query and attribute filters as newline-delimited JSON, " +
+                    "one product per line. The X-Total-Count header carries the size of the match set. Results are read " +
+                    "in scroll batches of catalog.export.batch-size, so memory use does not depend on the result size.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Products streamed"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    void exportProducts(
+            @ApiParam(value = "Search keyword; exports every product when omitted", required = false, example = "wireless earbuds")
+            @RequestParam(required = false) String q,
+            @ApiParam(value = "Product fields to return: a preset ('listing' or 'full') or a comma-separated list of fields, " +
+                    "e.g. name,price,rating. product_id is always returned; defaults to full", required = false, example = "listing")
+            @RequestParam(required = false) String fields,
+            @ApiParam(value = "Additional attribute filters. Keys must be prefixed with 'attributes.' (e.g., attributes.color=black)", required = false)
+            @RequestParam Map<String, String> allParams,
+            HttpServletResponse response
+    ) throws IOException;
+
+    @ApiOperation(value = "Batch search",
+            notes = "Runs several keyword, semantic and typeahead searches in one call and returns their results in " +
+                    "request order. Keyword and typeahead searches are sent to Elasticsearch as a single multi-search, " +
+                    "and a failing search only reports an error in its own result. At most " +
+                    "catalog.search.batch.max-searches searches are accepted.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Searches executed, one result per search"),
+            @ApiResponse(code = 400, message = "Empty or oversized batch"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @PostMapping("/batch")
+    CompletableFuture<ResponseEntity<List<BatchSearchResult>>> batchSearch(
+            @ApiParam(value = "Searches to run", required = true)
+            @RequestBody List<BatchSearchItem> searches
     );
 }
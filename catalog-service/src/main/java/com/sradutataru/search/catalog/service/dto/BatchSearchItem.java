@@ -0,0 +1,46 @@
+package com.sradutataru.search.catalog.service.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "One search of a batch, with the same parameters as the matching single search endpoint.")
+public class BatchSearchItem {
+
+    @Schema(description = "Search to run", example = "KEYWORD", required = true)
+    private Type type;
+
+    @Schema(description = "Search query string or typeahead prefix", example = "wireless earbuds", required = true)
+    private String q;
+
+    @Schema(description = "Number of results per page", example = "10")
+    private Integer count = 10;
+
+    @Schema(description = "Page number, starts at 1", example = "1")
+    private Integer page = 1;
+
+    @Schema(description = "Continuation token from the nextCursor of a previous response")
+    private String cursor;
+
+    @Schema(description = "Product fields to return: a preset ('listing' or 'full') or a comma-separated list of fields", example = "listing")
+    private String fields;
+
+    @Schema(description = "Attribute filters, keys prefixed with 'attributes.'", example = "{\"attributes.color\": \"black\"}")
+    private Map<String, String> attributes;
+
+    @Schema(description = "Typeahead only: suggest products of this category", example = "Smartphones")
+    private String category;
+
+    @Schema(description = "Typeahead only: suggest products of this brand", example = "Apple")
+    private String brand;
+
+    public enum Type {
+        KEYWORD, SEMANTIC, TYPEAHEAD
+    }
+}
@@ -0,0 +1,39 @@
+package com.sradutataru.search.catalog.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Outcome of one search of a batch: the response of a keyword or semantic search, the suggestions of a typeahead, or the error that search failed with.")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchSearchResult {
+
+    @Schema(description = "Response of a keyword or semantic search")
+    private ProductResponse response;
+
+    @ArraySchema(arraySchema = @Schema(description = "Suggestions of a typeahead search", example = "[\"iPhone 13\", \"iPhone 13 Pro\"]"))
+    private List<String> suggestions;
+
+    @Schema(description = "Why this search failed; the other searches of the batch are unaffected", example = "Invalid cursor")
+    private String error;
+
+    public static BatchSearchResult of(ProductResponse response) {
+        return new BatchSearchResult(response, null, null);
+    }
+
+    public static BatchSearchResult of(List<String> suggestions) {
+        return new BatchSearchResult(null, suggestions, null);
+    }
+
+    public static BatchSearchResult error(String error) {
+        return new BatchSearchResult(null, null, error);
+    }
+}
@@ -1,5 +1,6 @@
 package com.sradutataru.search.catalog.service.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -9,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Schema(description = "Product details including ID, name, brand, category, and other attributes.")
 public class ProductDto {
 
@@ -30,7 +32,7 @@ public class ProductDto {
 
     @JsonProperty("price")
     @Schema(description = "Price of the product", example = "999.99")
-    private double price;
+    private Double price;
 
     @JsonProperty("description")
     @Schema(description = "Description of the product", example = "The latest iPhone model with A16 Bionic chip.")
@@ -50,11 +52,11 @@ public class ProductDto {
 
     @JsonProperty("rating")
     @Schema(description = "Average user rating", example = "4.5")
-    private float rating;
+    private Float rating;
 
     @JsonProperty("stock")
     @Schema(description = "Available stock count", example = "150")
-    private int stock;
+    private Integer stock;
 
     @ArraySchema(arraySchema = @Schema(description = "Tags for the product", example = "[\"new\", \"discount\", \"popular\"]"))
     private List<String> tags;
@@ -38,4 +38,8 @@ public class ProductResponse {
     @Schema(description = "The stage that returned results", example = "exact")
     private String stage;
 
+    @Schema(description = "Opaque token to pass as 'cursor' for the next page; absent when no more results follow",
+            example = "eyJzdGFnZSI6ImV4YWN0Iiwic29ydFZhbHVlcyI6WzEyLjUsIjEyMzQ1Il19")
+    private String nextCursor;
+
 }
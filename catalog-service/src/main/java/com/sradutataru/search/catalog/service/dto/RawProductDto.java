@@ -0,0 +1,130 @@
+package com.sradutataru.search.catalog.service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link ProductDto} serialized as the verbatim {@code _source} of its search hit. The UTF-8 bytes are copied
+ * straight into the generator's output buffer, so the document is never decoded into a String or bound to
+ * the bean properties, which stay empty.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@JsonSerialize(using = RawProductDto.Serializer.class)
+public class RawProductDto extends ProductDto {
+
+    private final byte[] source;
+
+    public RawProductDto(byte[] source) {
+        this.source = source;
+    }
+
+    static class Serializer extends StdSerializer<RawProductDto> {
+
+        Serializer() {
+            super(RawProductDto.class);
+        }
+
+        @Override
+        public void serialize(RawProductDto value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeRawValue(new RawJson(value.getSource()));
+        }
+    }
+
+    /**
+     * Exposes JSON bytes as unquoted raw content. UTF-8 generators only call the unquoted byte-oriented methods;
+     * the character-oriented ones are the fallback of Writer based generators. Should the document ever be
+     * written as a JSON string instead, the quoted variants escape its decoded text like any other string.
+     */
+    record RawJson(byte[] bytes) implements SerializableString {
+
+        @Override
+        public String getValue() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return quoted().asQuotedChars();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return bytes;
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return quoted().asQuotedUTF8();
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return quoted().appendQuotedUTF8(buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return quoted().appendQuoted(buffer, offset);
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + bytes.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+            return bytes.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return -1;
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            return quoted().writeQuotedUTF8(out);
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+            return quoted().putQuotedUTF8(buffer);
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (bytes.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(bytes);
+            return bytes.length;
+        }
+
+        private SerializedString quoted() {
+            return new SerializedString(getValue());
+        }
+    }
+}
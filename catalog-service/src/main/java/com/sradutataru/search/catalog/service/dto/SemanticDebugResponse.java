@@ -0,0 +1,28 @@
+package com.sradutataru.search.catalog.service.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Semantic search response together with the recognised tags and per-stage scoring diagnostics.")
+public class SemanticDebugResponse {
+
+    @Schema(description = "The search response, as returned by the semantic search endpoint")
+    private ProductResponse response;
+
+    @ArraySchema(arraySchema = @Schema(description = "Tags recognised in the query"))
+    private List<TagDto> tags;
+
+    @Schema(description = "Time spent recognising tags in milliseconds", example = "4")
+    private long recognitionMillis;
+
+    @ArraySchema(arraySchema = @Schema(description = "Diagnostics of every stage tried, in priority order"))
+    private List<StageTrace> stages;
+}
@@ -0,0 +1,39 @@
+package com.sradutataru.search.catalog.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Diagnostics of one semantic stage: the generated query, its timing and the scoring of its hits.")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StageTrace {
+
+    @Schema(description = "Name of the stage", example = "keyword match")
+    private String stage;
+
+    @Schema(description = "What happened to the stage", example = "MATCHED")
+    private Outcome outcome;
+
+    @Schema(description = "Generated Elasticsearch query of the stage")
+    private String query;
+
+    @Schema(description = "Total number of docs found by the stage", example = "13")
+    private Long totalHits;
+
+    @Schema(description = "Round trip time of the stage query in milliseconds", example = "12")
+    private Long tookMillis;
+
+    @Schema(description = "Scoring explanation of every returned hit, keyed by document id")
+    private Map<String, String> explanations;
+
+    public enum Outcome {
+        SKIPPED_MATCH_PERCENT, SKIPPED_UNMATCHED_FIELDS, NO_HITS, MATCHED
+    }
+}
@@ -0,0 +1,97 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.SemanticStage;
+import org.elasticsearch.common.regex.Regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link SemanticStage} resolved once at load time: the field boosts are copied into an immutable map and
+ * the {@code dynamic_fields} patterns are compiled, so building a stage query does no parsing. Boosts of
+ * field variants are memoized, so after warm-up resolving one is a single hash lookup.
+ */
+public final class CompiledStage {
+
+    /**
+     * Upper bound on memoized field variants; attribute names come from the catalog, so the set is open-ended.
+     */
+    static final int MAX_RESOLVED_FIELDS = 1024;
+
+    private static final Float NOT_SEARCHED = -1f;
+
+    private final String name;
+    private final Map<String, Float> fields;
+    private final List<DynamicField> dynamicFields;
+    private final float minMatchPercent;
+    private final String[] similarityFields;
+    private final Map<String, Float> resolvedBoosts = new ConcurrentHashMap<>();
+
+    CompiledStage(SemanticStage stage) {
+        if (stage.getName() == null || stage.getFields() == null) {
+            throw new IllegalArgumentException("Semantic stage requires a name and fields");
+        }
+        this.name = stage.getName();
+        this.fields = Map.copyOf(stage.getFields());
+        List<DynamicField> dynamic = new ArrayList<>();
+        if (stage.getDynamicFields() != null) {
+            stage.getDynamicFields().forEach((pattern, boost) -> dynamic.add(new DynamicField(Regex.compile(pattern, null), boost)));
+        }
+        this.dynamicFields = List.copyOf(dynamic);
+        this.minMatchPercent = stage.getMinMatchPercent();
+        this.similarityFields = stage.getFields().keySet().toArray(String[]::new);
+    }
+
+    /**
+     * Returns the boost of {@code fieldVariant} in this stage, or -1 when the stage does not search it.
+     */
+    public float boostFor(String fieldVariant) {
+        Float boost = resolvedBoosts.get(fieldVariant);
+        if (boost != null) {
+            return boost;
+        }
+        boost = resolve(fieldVariant);
+        if (resolvedBoosts.size() < MAX_RESOLVED_FIELDS) {
+            resolvedBoosts.putIfAbsent(fieldVariant, boost);
+        }
+        return boost;
+    }
+
+    private Float resolve(String fieldVariant) {
+        Float boost = fields.get(fieldVariant);
+        if (boost != null) {
+            return boost;
+        }
+        for (DynamicField dynamicField : dynamicFields) {
+            if (dynamicField.pattern().matcher(fieldVariant).matches()) {
+                return dynamicField.boost();
+            }
+        }
+        return NOT_SEARCHED;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Float> getFields() {
+        return fields;
+    }
+
+    public float getMinMatchPercent() {
+        return minMatchPercent;
+    }
+
+    /**
+     * Fields searched by the more-like-this clause for unrecognised tokens.
+     */
+    public String[] getSimilarityFields() {
+        return similarityFields.clone();
+    }
+
+    private record DynamicField(Pattern pattern, float boost) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.sradutataru.search.catalog.service.service;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Adapts the async client calls to {@link CompletableFuture}s. Callbacks run on the client's I/O reactor
+ * threads, so anything composed on these futures must not block.
+ */
+final class ElasticsearchFutures {
+
+    private ElasticsearchFutures() {
+    }
+
+    static CompletableFuture<SearchResponse> search(RestHighLevelClient client, SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        client.searchAsync(request, DEFAULT, listener(future));
+        return future;
+    }
+
+    static CompletableFuture<MultiSearchResponse> msearch(RestHighLevelClient client, MultiSearchRequest request) {
+        CompletableFuture<MultiSearchResponse> future = new CompletableFuture<>();
+        client.msearchAsync(request, DEFAULT, listener(future));
+        return future;
+    }
+
+    private static <T> ActionListener<T> listener(CompletableFuture<T> future) {
+        return ActionListener.wrap(future::complete, e -> future.completeExceptionally(
+                e instanceof RuntimeException ? e : new RuntimeException("Elasticsearch request failed", e)));
+    }
+}
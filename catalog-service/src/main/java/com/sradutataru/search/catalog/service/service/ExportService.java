@@ -0,0 +1,103 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Streams every product matching a keyword query as NDJSON. Only one scroll batch is held in memory and the
+ * next one is requested after the previous was written, so a slow reader slows the scroll down instead of
+ * filling the heap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+
+    private static final String INDEX = "catalog-index_live";
+
+    private final RestHighLevelClient client;
+    private final ObjectMapper objectMapper;
+
+    @Value("${catalog.export.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${catalog.export.scroll-keep-alive-ms:60000}")
+    private long scrollKeepAliveMs;
+
+    /**
+     * Writes one {@link ProductDto} per line to {@code out}, limited to the {@link FieldProjection} in
+     * {@code fields}. {@code totalHits} is called with the size of the match set before anything is written.
+     *
+     * @return the number of products written
+     */
+    public long exportProducts(String query, String fields, Map<String, String> attributes, LongConsumer totalHits,
+                               OutputStream out) throws IOException {
+        TimeValue keepAlive = TimeValue.timeValueMillis(scrollKeepAliveMs);
+        SearchSourceBuilder source = FieldProjection.parse(fields).apply(new SearchSourceBuilder())
+                .query(ProductService.keywordQuery(query, attributes))
+                .sort("_doc", SortOrder.ASC)
+                .size(batchSize);
+        SearchRequest request = new SearchRequest(INDEX).scroll(keepAlive).source(source);
+        ObjectWriter writer = objectMapper.writerFor(ProductDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long started = System.currentTimeMillis();
+        long written = 0;
+        String scrollId = null;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            SearchResponse response = client.search(request, DEFAULT);
+            scrollId = response.getScrollId();
+            totalHits.accept(response.getHits().getTotalHits().value);
+            while (response.getHits().getHits().length > 0) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    writer.writeValue(generator, objectMapper.readValue(hit.getSourceAsString(), ProductDto.class));
+                    generator.writeRaw('\n');
+                    written++;
+                }
+                generator.flush();
+                response = client.scroll(new SearchScrollRequest(scrollId).scroll(keepAlive), DEFAULT);
+                scrollId = response.getScrollId();
+            }
+        } finally {
+            clearScroll(scrollId);
+            log.info("Exported {} products for query '{}' in {} ms", written, query, System.currentTimeMillis() - started);
+        }
+        return written;
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(scrollId);
+        try {
+            client.clearScroll(clearScrollRequest, DEFAULT);
+        } catch (IOException e) {
+            log.warn("Failed to clear export scroll: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sradutataru.search.catalog.service.service;
+
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Product fields a search returns, resolved from the {@code fields} request parameter: either a named preset
+ * or a comma-separated list of product fields. Unrequested fields are filtered out of {@code _source}, so
+ * they are neither fetched from Elasticsearch nor serialized. {@code product_id} is always returned.
+ *
+ * @param key      canonical form, equal for requests asking for the same fields
+ * @param includes {@code _source} includes, or null to return whole documents
+ */
+public record FieldProjection(String key, List<String> includes) {
+
+    public static final FieldProjection FULL = new FieldProjection("full", null);
+    public static final FieldProjection LISTING = new FieldProjection("listing",
+            List.of("product_id", "name", "brand_name", "category_name", "price", "rating"));
+
+    private static final Set<String> PRODUCT_FIELDS = Set.of("product_id", "name", "brand_name", "category_name", "price",
+            "description", "search_keywords", "attributes", "release_date", "rating", "stock", "tags");
+
+    /**
+     * @throws IllegalArgumentException for fields that are not product fields
+     */
+    public static FieldProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return FULL;
+        }
+        String value = fields.trim();
+        for (FieldProjection preset : List.of(FULL, LISTING)) {
+            if (preset.key().equalsIgnoreCase(value)) {
+                return preset;
+            }
+        }
+        Set<String> includes = new TreeSet<>();
+        includes.add("product_id");
+        for (String field : value.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!PRODUCT_FIELDS.contains(name.toLowerCase(Locale.ROOT)) && !name.startsWith("attributes.")) {
+                throw new IllegalArgumentException("Unknown field '" + name + "', expected a preset (full, listing) or product fields");
+            }
+            includes.add(name.startsWith("attributes.") ? name : name.toLowerCase(Locale.ROOT));
+        }
+        List<String> list = List.copyOf(includes);
+        return new FieldProjection(String.join(",", list), list);
+    }
+
+    public SearchSourceBuilder apply(SearchSourceBuilder source) {
+        return includes == null ? source : source.fetchSource(includes.toArray(String[]::new), null);
+    }
+}
@@ -0,0 +1,9 @@
+package com.sradutataru.search.catalog.service.service;
+
+import java.util.Set;
+
+/**
+ * Published by {@link LiveIndexWatcher} when the indices behind the {@code catalog-index_live} alias changed.
+ */
+public record LiveIndexChangedEvent(Set<String> previousIndices, Set<String> currentIndices) {
+}
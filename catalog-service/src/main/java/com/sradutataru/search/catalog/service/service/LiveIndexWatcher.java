@@ -0,0 +1,65 @@
+package com.sradutataru.search.catalog.service.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Polls the {@code catalog-index_live} alias and publishes a {@link LiveIndexChangedEvent} when the indexer
+ * swapped it to another index, so anything derived from the live index can be dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveIndexWatcher {
+
+    private static final String LIVE_ALIAS = "catalog-index_live";
+
+    private final RestHighLevelClient client;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile Set<String> liveIndices;
+
+    public Set<String> getLiveIndices() {
+        return liveIndices;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.search.cache.alias-poll-interval-ms:5000}")
+    public void poll() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            log.warn("Failed to check the {} alias: {}", LIVE_ALIAS, e.getMessage());
+        }
+    }
+
+    public synchronized void check() {
+        Set<String> current = resolveLiveIndices();
+        Set<String> previous = liveIndices;
+        liveIndices = current;
+        if (previous != null && !previous.equals(current)) {
+            log.info("Alias {} moved from {} to {}", LIVE_ALIAS, previous, current);
+            eventPublisher.publishEvent(new LiveIndexChangedEvent(previous, current));
+        }
+    }
+
+    private Set<String> resolveLiveIndices() {
+        try {
+            GetAliasesResponse response = client.indices().getAlias(new GetAliasesRequest(LIVE_ALIAS), DEFAULT);
+            return new TreeSet<>(response.getAliases().keySet());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to resolve the live alias", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.sradutataru.search.catalog.service.service;
+
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestHighLevelClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects search requests and sends them as one {@code _msearch}. Every {@link #add} returns a future that
+ * completes with its own response once {@link #execute} is called, which must happen exactly once.
+ */
+final class MultiSearchBatch {
+
+    private final List<SearchRequest> requests = new ArrayList<>();
+    private final List<CompletableFuture<SearchResponse>> responses = new ArrayList<>();
+
+    CompletableFuture<SearchResponse> add(SearchRequest request) {
+        CompletableFuture<SearchResponse> response = new CompletableFuture<>();
+        requests.add(request);
+        responses.add(response);
+        return response;
+    }
+
+    int size() {
+        return requests.size();
+    }
+
+    void execute(RestHighLevelClient client) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        requests.forEach(multiSearchRequest::add);
+        ElasticsearchFutures.msearch(client, multiSearchRequest).whenComplete((multiSearchResponse, e) -> {
+            for (int i = 0; i < responses.size(); i++) {
+                if (e != null) {
+                    responses.get(i).completeExceptionally(e);
+                    continue;
+                }
+                MultiSearchResponse.Item item = multiSearchResponse.getResponses()[i];
+                if (item.isFailure()) {
+                    responses.get(i).completeExceptionally(new RuntimeException("Elasticsearch request failed", item.getFailure()));
+                } else {
+                    responses.get(i).complete(item.getResponse());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+import com.sradutataru.search.catalog.service.dto.RawProductDto;
+import lombok.RequiredArgsConstructor;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns product hits into the DTOs of a search response. With source pass-through enabled each hit keeps its
+ * {@code _source} bytes and is written to the response as-is, instead of going through a String and a
+ * {@link ProductDto} that Jackson would immediately serialize back.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductHitReader {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${catalog.search.source-pass-through.enabled:false}")
+    private boolean sourcePassThrough;
+
+    public List<ProductDto> read(SearchHit[] hits) throws IOException {
+        List<ProductDto> products = new ArrayList<>(hits.length);
+        for (SearchHit hit : hits) {
+            products.add(read(hit));
+        }
+        return products;
+    }
+
+    ProductDto read(SearchHit hit) throws IOException {
+        if (sourcePassThrough) {
+            return new RawProductDto(BytesReference.toBytes(hit.getSourceRef()));
+        }
+        return objectMapper.readValue(hit.getSourceAsString(), ProductDto.class);
+    }
+}
@@ -2,27 +2,46 @@ package com.sradutataru.search.catalog.service.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.BatchSearchItem;
+import com.sradutataru.search.catalog.service.dto.BatchSearchResult;
 import com.sradutataru.search.catalog.service.dto.ProductDto;
 import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import com.sradutataru.search.catalog.service.dto.SemanticDebugResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.MultiMatchQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.suggest.SuggestBuilder;
+import org.elasticsearch.search.suggest.SuggestBuilders;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionBuilder;
+import org.elasticsearch.search.suggest.completion.context.CategoryQueryContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.apache.http.util.TextUtils.isBlank;
 import static org.elasticsearch.client.RequestOptions.DEFAULT;
@@ -33,12 +52,84 @@ import static org.elasticsearch.client.RequestOptions.DEFAULT;
 public class ProductService {
 
     private static final String INDEX = "catalog-index_live";
+    private static final String SUGGEST_INDEX = "catalog-suggest_live";
+    private static final String SUGGEST_FIELD = "suggest";
+    private static final String SUGGEST_NAME = "name";
+    private static final String SUGGESTION = "products";
+    private static final String CATEGORY_CONTEXT = "category";
+    private static final String BRAND_CONTEXT = "brand";
+    private static final int TYPEAHEAD_SIZE = 10;
+    /**
+     * Variants of a product share its name, so completion options are over-fetched to still fill
+     * {@link #TYPEAHEAD_SIZE} distinct names.
+     */
+    private static final int COMPLETION_OPTIONS = 3 * TYPEAHEAD_SIZE;
     private final RestHighLevelClient client;
     private final ObjectMapper objectMapper;
+    private final ProductHitReader productHitReader;
     private final SemanticService semanticService;
+    private final SearchResponseCache searchResponseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final TypeaheadService typeaheadService;
+    private final ThreadPoolTaskExecutor applicationTaskExecutor;
+
+    @Value("${catalog.search.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${catalog.typeahead.suggest-index.enabled:false}")
+    private boolean suggestIndexEnabled;
+
+    @Value("${catalog.search.batch.max-searches:20}")
+    private int batchMaxSearches;
 
     public ProductResponse keywordSearch(String query, Integer count, Integer page, Map<String, String> attributes) {
-        List<ProductDto> products = new ArrayList<>();
+        return keywordSearch(query, count, page, null, null, attributes);
+    }
+
+    /**
+     * Pages with {@code page} when {@code cursor} is null, otherwise continues after the cursor. {@code fields}
+     * is a {@link FieldProjection} preset or field list; null returns whole products.
+     */
+    public ProductResponse keywordSearch(String query, Integer count, Integer page, String cursor, String fields,
+                                         Map<String, String> attributes) {
+        SearchCursor after = SearchCursor.decode(cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        return searchProducts(SearchRequestKey.of(SearchEndpoint.KEYWORD, query, count, page, cursor, projection.key(), attributes), query,
+                () -> searchKeyword(query, count, page, after, projection, attributes));
+    }
+
+    /**
+     * Runs {@link #keywordSearch} on the async client when {@code catalog.search.async.enabled} is set, otherwise
+     * blocks the calling thread and returns a completed future.
+     */
+    public CompletableFuture<ProductResponse> keywordSearchAsync(String query, Integer count, Integer page, String cursor,
+                                                                 String fields, Map<String, String> attributes) {
+        if (!asyncEnabled) {
+            return CompletableFuture.completedFuture(keywordSearch(query, count, page, cursor, fields, attributes));
+        }
+        return keywordSearchNonBlocking(query, count, page, cursor, fields, attributes, this::executeAsync);
+    }
+
+    /**
+     * @param execute sends the search request, either on its own or as part of a {@link MultiSearchBatch}
+     */
+    private CompletableFuture<ProductResponse> keywordSearchNonBlocking(String query, Integer count, Integer page, String cursor,
+                                                                        String fields, Map<String, String> attributes,
+                                                                        Function<SearchRequest, CompletableFuture<SearchResponse>> execute) {
+        SearchCursor after = SearchCursor.decode(cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        SearchRequest request = productsRequest(keywordQuery(query, attributes), count, page, after, projection);
+        return searchProductsAsync(SearchRequestKey.of(SearchEndpoint.KEYWORD, query, count, page, cursor, projection.key(), attributes), query,
+                () -> execute.apply(request)
+                        .thenApplyAsync(response -> productResponse(query, count, page, after, attributes, response), applicationTaskExecutor));
+    }
+
+    private ProductResponse searchKeyword(String query, Integer count, Integer page, SearchCursor after,
+                                          FieldProjection fields, Map<String, String> attributes) {
+        return getProductResponse(query, count, page, after, fields, attributes, keywordQuery(query, attributes));
+    }
+
+    static BoolQueryBuilder keywordQuery(String query, Map<String, String> attributes) {
         BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
         if(query == null || isBlank(query)) {
             boolQuery.must(QueryBuilders.matchAllQuery());
@@ -50,12 +141,10 @@ public class ProductService {
                     boolQuery.filter(QueryBuilders.termQuery(attrKey, attrValue))
             );
         }
-
-        return getProductResponse(query, count, page, attributes, products, boolQuery);
+        return boolQuery;
     }
 
     public ProductResponse semanticSearchV1(String query, Integer count, Integer page, Map<String, String> attributes) {
-        List<ProductDto> products = new ArrayList<>();
         BoolQueryBuilder boolQuery = QueryBuilders.boolQuery()
                 .must(QueryBuilders.moreLikeThisQuery(
                                 new String[]{"name", "description", "searchKeywords"},
@@ -68,58 +157,279 @@ public class ProductService {
             attributes.forEach((key, value) -> boolQuery.filter(QueryBuilders.termQuery(key, value)));
         }
 
-        return getProductResponse(query, count, page, attributes, products, boolQuery);
+        return getProductResponse(query, count, page, null, FieldProjection.FULL, attributes, boolQuery);
     }
 
     public ProductResponse semanticSearchV2(String query, Integer count, Integer page, Map<String, String> attributes) {
-        ProductResponse semanticSearch = semanticService.semanticSearch(query, count, page, attributes);
+        return semanticSearchV2(query, count, page, null, null, attributes);
+    }
+
+    /**
+     * A cursor issued by the keyword fallback keeps paging the keyword results.
+     */
+    public ProductResponse semanticSearchV2(String query, Integer count, Integer page, String cursor, String fields,
+                                            Map<String, String> attributes) {
+        SearchCursor after = SearchCursor.decode(cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        return searchProducts(SearchRequestKey.of(SearchEndpoint.SEMANTIC, query, count, page, cursor, projection.key(), attributes), query,
+                () -> searchSemantic(query, count, page, cursor, after, projection, attributes));
+    }
+
+    private ProductResponse searchSemantic(String query, Integer count, Integer page, String cursor, SearchCursor after,
+                                           FieldProjection fields, Map<String, String> attributes) {
+        ProductResponse semanticSearch = semanticService.semanticSearch(query, count, page, after, fields, attributes);
         if(semanticSearch == null) {
-            return keywordSearch(query, count, page, attributes);
+            return keywordSearch(query, count, page, cursor, fields.key(), attributes);
         }
         return semanticSearch;
     }
 
-    private ProductResponse getProductResponse(String query, Integer count, Integer page, Map<String, String> attributes,
-                                               List<ProductDto> products, BoolQueryBuilder boolQuery) {
+    public CompletableFuture<ProductResponse> semanticSearchV2Async(String query, Integer count, Integer page,
+                                                                    String cursor, String fields,
+                                                                    Map<String, String> attributes) {
+        if (!asyncEnabled) {
+            return CompletableFuture.completedFuture(semanticSearchV2(query, count, page, cursor, fields, attributes));
+        }
+        return semanticSearchNonBlocking(query, count, page, cursor, fields, attributes);
+    }
+
+    private CompletableFuture<ProductResponse> semanticSearchNonBlocking(String query, Integer count, Integer page,
+                                                                         String cursor, String fields,
+                                                                         Map<String, String> attributes) {
+        SearchCursor after = SearchCursor.decode(cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        return searchProductsAsync(SearchRequestKey.of(SearchEndpoint.SEMANTIC, query, count, page, cursor, projection.key(), attributes), query,
+                () -> semanticService.semanticSearchAsync(query, count, page, after, projection, attributes).thenCompose(semanticSearch ->
+                        semanticSearch == null
+                                ? keywordSearchNonBlocking(query, count, page, cursor, projection.key(), attributes, this::executeAsync)
+                                : CompletableFuture.completedFuture(semanticSearch)));
+    }
+
+    public SemanticDebugResponse semanticSearchDebug(String query, Integer count, Integer page, Map<String, String> attributes) {
+        SemanticDebugResponse debug = semanticService.semanticSearchDebug(query, count, page, attributes);
+        if(debug.getResponse() == null) {
+            debug.setResponse(keywordSearch(query, count, page, attributes));
+        }
+        return debug;
+    }
+
+    private ProductResponse getProductResponse(String query, Integer count, Integer page, SearchCursor after,
+                                               FieldProjection fields, Map<String, String> attributes,
+                                               BoolQueryBuilder boolQuery) {
         try {
-            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
-                    .query(boolQuery)
-                    .size(count)
-                    .from((page - 1) * count);
+            SearchResponse response = client.search(productsRequest(boolQuery, count, page, after, fields), DEFAULT);
+            return productResponse(query, count, page, after, attributes, response);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to perform semantic search", e);
+        }
+    }
 
-            SearchRequest searchRequest = new SearchRequest(INDEX);
-            searchRequest.source(sourceBuilder);
+    private static SearchRequest productsRequest(BoolQueryBuilder boolQuery, Integer count, Integer page, SearchCursor after,
+                                                 FieldProjection fields) {
+        SearchSourceBuilder sourceBuilder = fields.apply(SearchCursor.page(new SearchSourceBuilder().query(boolQuery), count, page, after));
 
-            SearchResponse response = client.search(searchRequest, DEFAULT);
+        SearchRequest searchRequest = new SearchRequest(INDEX);
+        searchRequest.source(sourceBuilder);
+        return searchRequest;
+    }
 
+    private ProductResponse productResponse(String query, Integer count, Integer page, SearchCursor after,
+                                            Map<String, String> attributes, SearchResponse response) {
+        try {
             long numFound = response.getHits().getTotalHits().value;
-            for (SearchHit hit : response.getHits().getHits()) {
-                ProductDto product = objectMapper.readValue(hit.getSourceAsString(), ProductDto.class);
-                products.add(product);
-            }
-            return new ProductResponse(query, numFound, attributes, products, count, page, null);
+            SearchHit[] hits = response.getHits().getHits();
+            List<ProductDto> products = productHitReader.read(hits);
+            return new ProductResponse(query, numFound, attributes, products, count, after == null ? page : null, null,
+                    SearchCursor.next(null, hits, count));
         } catch (IOException e) {
             throw new RuntimeException("Failed to perform semantic search", e);
         }
     }
 
     public List<String> typeaheadSearch(String query) {
-        Set<String> suggestions = new HashSet<>();
+        return typeaheadSearch(query, null, null);
+    }
+
+    /**
+     * Answered in-process by {@link TypeaheadService} once its index is loaded, otherwise by Elasticsearch.
+     * Suggestions narrowed to a category or brand always come from Elasticsearch.
+     */
+    public List<String> typeaheadSearch(String query, String category, String brand) {
+        if (category == null && brand == null) {
+            List<String> suggestions = typeaheadService.suggest(query);
+            if (suggestions != null) {
+                return suggestions;
+            }
+        }
+        return search(typeaheadKey(query, category, brand), () -> searchTypeahead(query, category, brand));
+    }
+
+    public CompletableFuture<List<String>> typeaheadSearchAsync(String query, String category, String brand) {
+        if (!asyncEnabled) {
+            return CompletableFuture.completedFuture(typeaheadSearch(query, category, brand));
+        }
+        return typeaheadSearchNonBlocking(query, category, brand, this::executeAsync);
+    }
+
+    private CompletableFuture<List<String>> typeaheadSearchNonBlocking(String query, String category, String brand,
+                                                                       Function<SearchRequest, CompletableFuture<SearchResponse>> execute) {
+        if (category == null && brand == null) {
+            List<String> suggestions = typeaheadService.suggest(query);
+            if (suggestions != null) {
+                return CompletableFuture.completedFuture(suggestions);
+            }
+        }
+        SearchRequest request = typeaheadRequest(query, category, brand);
+        return searchAsync(typeaheadKey(query, category, brand),
+                () -> execute.apply(request).thenApplyAsync(this::suggestions, applicationTaskExecutor));
+    }
+
+    /**
+     * Runs every search of the batch concurrently on the async client, whatever
+     * {@code catalog.search.async.enabled} says. Keyword and typeahead searches missing from the response cache
+     * are sent together as one {@code _msearch}; semantic searches run their own stage pipeline. A failing
+     * search only fails its own result.
+     */
+    public CompletableFuture<List<BatchSearchResult>> batchSearch(List<BatchSearchItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one search");
+        }
+        if (items.size() > batchMaxSearches) {
+            throw new IllegalArgumentException("A batch accepts at most " + batchMaxSearches + " searches");
+        }
+        MultiSearchBatch batch = new MultiSearchBatch();
+        List<CompletableFuture<BatchSearchResult>> results = new ArrayList<>(items.size());
         try {
-            String[] tokens = query.toLowerCase().split(" ");
-            BoolQueryBuilder boolQuery =
-                    QueryBuilders.boolQuery()
-                            .should(getPrefixPhraseForField(tokens, "name"))
-                            .should(getPrefixPhraseForField(tokens, "searchKeywords"));
-            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
-                    .query(boolQuery)
-                    .size(10);
+            for (BatchSearchItem item : items) {
+                results.add(batchItem(item, batch).handle((result, e) -> e == null ? result : batchError(item, e)));
+            }
+        } finally {
+            batch.execute(client);
+        }
+        log.debug("Batch of {} searches sent {} requests in one msearch", items.size(), batch.size());
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(done -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    private CompletableFuture<BatchSearchResult> batchItem(BatchSearchItem item, MultiSearchBatch batch) {
+        try {
+            if (item.getType() == null || isBlank(item.getQ())) {
+                throw new IllegalArgumentException("Every search of a batch needs a type and a query");
+            }
+            if (item.getType() != BatchSearchItem.Type.TYPEAHEAD && (!isPositive(item.getCount()) || !isPositive(item.getPage()))) {
+                throw new IllegalArgumentException("Keyword and semantic searches of a batch need a positive count and page");
+            }
+            return switch (item.getType()) {
+                case KEYWORD -> keywordSearchNonBlocking(item.getQ(), item.getCount(), item.getPage(), item.getCursor(),
+                        item.getFields(), item.getAttributes(), batch::add).thenApply(BatchSearchResult::of);
+                case SEMANTIC -> semanticSearchNonBlocking(item.getQ(), item.getCount(), item.getPage(), item.getCursor(),
+                        item.getFields(), item.getAttributes()).thenApply(BatchSearchResult::of);
+                case TYPEAHEAD -> typeaheadSearchNonBlocking(item.getQ(), item.getCategory(), item.getBrand(), batch::add)
+                        .thenApply(BatchSearchResult::of);
+            };
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isPositive(Integer value) {
+        return value != null && value > 0;
+    }
+
+    private static BatchSearchResult batchError(BatchSearchItem item, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof IllegalArgumentException) {
+            return BatchSearchResult.error(cause.getMessage());
+        }
+        log.error("Batch {} search for '{}' failed: {}", item.getType(), item.getQ(), cause.getMessage(), cause);
+        return BatchSearchResult.error("Unexpected error occurred");
+    }
 
-            SearchRequest searchRequest = new SearchRequest(INDEX);
-            searchRequest.source(sourceBuilder);
+    private CompletableFuture<SearchResponse> executeAsync(SearchRequest request) {
+        return ElasticsearchFutures.search(client, request);
+    }
 
-            SearchResponse response = client.search(searchRequest, DEFAULT);
+    private static SearchRequestKey typeaheadKey(String query, String category, String brand) {
+        Map<String, String> contexts = new HashMap<>();
+        if (category != null) {
+            contexts.put(CATEGORY_CONTEXT, category);
+        }
+        if (brand != null) {
+            contexts.put(BRAND_CONTEXT, brand);
+        }
+        return SearchRequestKey.of(SearchEndpoint.TYPEAHEAD, query, null, null, null, contexts);
+    }
+
+    private List<String> searchTypeahead(String query, String category, String brand) {
+        try {
+            return suggestions(client.search(typeaheadRequest(query, category, brand), DEFAULT));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to perform typeahead search", e);
+        }
+    }
+
+    private SearchRequest typeaheadRequest(String query, String category, String brand) {
+        return suggestIndexEnabled ? completionRequest(query, category, brand) : prefixRequest(query, category, brand);
+    }
 
+    /**
+     * Completes product names on the suggest index built next to the catalog. Every token suffix of a name is an
+     * input there, so options match mid-name tokens and the name is read from the {@code _source} of the option.
+     */
+    private static SearchRequest completionRequest(String query, String category, String brand) {
+        CompletionSuggestionBuilder completion = SuggestBuilders.completionSuggestion(SUGGEST_FIELD)
+                .prefix(query.trim())
+                .size(COMPLETION_OPTIONS);
+        Map<String, List<? extends ToXContent>> contexts = new HashMap<>();
+        if (category != null) {
+            contexts.put(CATEGORY_CONTEXT, List.of(CategoryQueryContext.builder().setCategory(category.toLowerCase(Locale.ROOT)).build()));
+        }
+        if (brand != null) {
+            contexts.put(BRAND_CONTEXT, List.of(CategoryQueryContext.builder().setCategory(brand.toLowerCase(Locale.ROOT)).build()));
+        }
+        if (!contexts.isEmpty()) {
+            completion.contexts(contexts);
+        }
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .suggest(new SuggestBuilder().addSuggestion(SUGGESTION, completion))
+                .fetchSource(new String[]{SUGGEST_NAME}, null)
+                .size(0);
+        return new SearchRequest(SUGGEST_INDEX).source(sourceBuilder);
+    }
+
+    private static SearchRequest prefixRequest(String query, String category, String brand) {
+        String[] tokens = query.toLowerCase().split(" ");
+        BoolQueryBuilder boolQuery =
+                QueryBuilders.boolQuery()
+                        .should(getPrefixPhraseForField(tokens, "name"))
+                        .should(getPrefixPhraseForField(tokens, "searchKeywords"));
+        if (category != null) {
+            boolQuery.filter(QueryBuilders.termQuery("category_name.concept", category));
+        }
+        if (brand != null) {
+            boolQuery.filter(QueryBuilders.termQuery("brand_name.concept", brand));
+        }
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(boolQuery)
+                .size(TYPEAHEAD_SIZE);
+
+        SearchRequest searchRequest = new SearchRequest(INDEX);
+        searchRequest.source(sourceBuilder);
+        return searchRequest;
+    }
+
+    private List<String> suggestions(SearchResponse response) {
+        if (response.getSuggest() != null) {
+            CompletionSuggestion completion = response.getSuggest().getSuggestion(SUGGESTION);
+            Set<String> suggestions = new LinkedHashSet<>();
+            for (CompletionSuggestion.Entry.Option option : completion.getOptions()) {
+                Object name = option.getHit() == null ? null : option.getHit().getSourceAsMap().get(SUGGEST_NAME);
+                suggestions.add(name == null ? option.getText().string() : name.toString());
+            }
+            return suggestions.stream().limit(TYPEAHEAD_SIZE).toList();
+        }
+        Set<String> suggestions = new HashSet<>();
+        try {
             for (SearchHit hit : response.getHits().getHits()) {
                 JsonNode node = objectMapper.readTree(hit.getSourceAsString());
                 if (node.has("name")) {
@@ -132,6 +442,41 @@ public class ProductService {
         return new ArrayList<>(suggestions);
     }
 
+    /**
+     * Answers from the response cache, and otherwise lets identical concurrent requests share one search.
+     */
+    private <T> T search(SearchRequestKey key, Supplier<T> search) {
+        return searchResponseCache.get(key, () -> requestCoalescer.execute(key, search));
+    }
+
+    private <T> CompletableFuture<T> searchAsync(SearchRequestKey key, Supplier<CompletableFuture<T>> search) {
+        return searchResponseCache.getAsync(key, () -> requestCoalescer.executeAsync(key, search));
+    }
+
+    /**
+     * Like {@link #search}, but the shared response may have been produced for another spelling of the normalized
+     * query, so it is answered with the caller's {@code query}.
+     */
+    private ProductResponse searchProducts(SearchRequestKey key, String query, Supplier<ProductResponse> search) {
+        return forQuery(search(key, search), query);
+    }
+
+    private CompletableFuture<ProductResponse> searchProductsAsync(SearchRequestKey key, String query,
+                                                                   Supplier<CompletableFuture<ProductResponse>> search) {
+        return searchAsync(key, search).thenApply(response -> forQuery(response, query));
+    }
+
+    /**
+     * Shallow copy of {@code response} echoing {@code query}; cached responses are never modified in place.
+     */
+    static ProductResponse forQuery(ProductResponse response, String query) {
+        if (response == null || Objects.equals(response.getQ(), query)) {
+            return response;
+        }
+        return new ProductResponse(query, response.getNumFound(), response.getAttributes(), response.getProducts(),
+                response.getCount(), response.getPage(), response.getStage(), response.getNextCursor());
+    }
+
     static BoolQueryBuilder getPrefixPhraseForField(String[] tokens, String field) {
         BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
         if (tokens.length == 1) {
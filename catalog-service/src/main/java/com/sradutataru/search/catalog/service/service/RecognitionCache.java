@@ -0,0 +1,132 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caches the tags recognised for a normalized query. Caffeine's W-TinyLFU admission keeps the repeated
+ * head of the query distribution while one-off queries are evicted first. Entries are keyed by the tag
+ * dictionary generation as well, and the whole cache is dropped when a new generation is loaded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecognitionCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${catalog.semantic.recognition-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.semantic.recognition-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${catalog.semantic.recognition-cache.expire-after-write-ms:600000}")
+    private long expireAfterWriteMs;
+
+    private Cache<Key, List<TagDto>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "semantic.recognition");
+    }
+
+    /**
+     * Returns the tags of {@code query}, calling {@code recogniser} on a miss with the query as typed, only
+     * trimmed and with single spaces between tokens. Queries differing in case share one entry, so the
+     * original tokens of a hit are swapped for the caller's own. Every call gets its own copies, so callers
+     * are free to modify the returned tags.
+     */
+    public List<TagDto> get(String query, long generation, Function<String, List<TagDto>> recogniser) {
+        String tokens = tokens(query);
+        if (!enabled) {
+            return recogniser.apply(tokens);
+        }
+        List<TagDto> tags = cache.get(new Key(normalize(tokens), generation),
+                key -> List.copyOf(copy(recogniser.apply(tokens), tokens)));
+        return copy(tags, tokens);
+    }
+
+    /**
+     * Async variant of {@link #get}: a miss runs {@code recogniser} and caches the tags once its future completes.
+     */
+    public CompletableFuture<List<TagDto>> getAsync(String query, long generation,
+                                                    Function<String, CompletableFuture<List<TagDto>>> recogniser) {
+        String tokens = tokens(query);
+        if (!enabled) {
+            return recogniser.apply(tokens);
+        }
+        Key key = new Key(normalize(tokens), generation);
+        List<TagDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(copy(cached, tokens));
+        }
+        return recogniser.apply(tokens).thenApply(tags -> {
+            cache.put(key, List.copyOf(copy(tags, tokens)));
+            return tags;
+        });
+    }
+
+    @EventListener
+    public void onTagDictionaryRefreshed(TagDictionaryRefreshedEvent event) {
+        cache.invalidateAll();
+        log.info("Invalidated recognition cache for tag dictionary generation {}", event.generation());
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    static String normalize(String query) {
+        return tokens(query).toLowerCase(Locale.ROOT);
+    }
+
+    private static String tokens(String query) {
+        return query.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Copies {@code tags}, restoring the original token of each from the matching token of {@code query}
+     * regardless of case. Phrase matches carry the tag itself as original token and are copied unchanged.
+     */
+    private static List<TagDto> copy(List<TagDto> tags, String query) {
+        Map<String, String> originalTokens = new HashMap<>();
+        for (String token : query.split(" ")) {
+            originalTokens.putIfAbsent(token.toLowerCase(Locale.ROOT), token);
+        }
+        List<TagDto> copies = new ArrayList<>(tags.size());
+        for (TagDto tag : tags) {
+            String originalToken = tag.getOriginalToken() == null ? null
+                    : originalTokens.getOrDefault(tag.getOriginalToken().toLowerCase(Locale.ROOT), tag.getOriginalToken());
+            copies.add(new TagDto(tag.getTag(), tag.getField(), tag.getType(), tag.getSourceId(), tag.getWeight(),
+                    originalToken, tag.getMatchType()));
+        }
+        return copies;
+    }
+
+    private record Key(String query, long generation) {
+    }
+}
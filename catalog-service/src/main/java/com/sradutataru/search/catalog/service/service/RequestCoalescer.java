@@ -0,0 +1,117 @@
+package com.sradutataru.search.catalog.service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical searches: while a request is being computed, concurrent requests with
+ * the same {@link SearchRequestKey} wait for it and receive its result or its failure instead of running again.
+ * Nothing is kept once the computation completes.
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestCoalescer {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<SearchRequestKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<SearchEndpoint, Counter> executed = new EnumMap<>(SearchEndpoint.class);
+    private final Map<SearchEndpoint, Counter> collapsed = new EnumMap<>(SearchEndpoint.class);
+
+    @Value("${catalog.search.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    public void init() {
+        for (SearchEndpoint endpoint : SearchEndpoint.values()) {
+            String tag = endpoint.name().toLowerCase(Locale.ROOT);
+            executed.put(endpoint, meterRegistry.counter("catalog.search.coalescing.requests", "endpoint", tag, "result", "executed"));
+            collapsed.put(endpoint, meterRegistry.counter("catalog.search.coalescing.requests", "endpoint", tag, "result", "collapsed"));
+        }
+        meterRegistry.gaugeMapSize("catalog.search.coalescing.in-flight", List.of(), inFlight);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(SearchRequestKey key, Supplier<T> search) {
+        if (!enabled) {
+            return search.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            collapsed.get(key.endpoint()).increment();
+            return (T) await(leader);
+        }
+        executed.get(key.endpoint()).increment();
+        try {
+            T result = search.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Async variant of {@link #execute}: followers get a future completed with the leader's outcome.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(SearchRequestKey key, Supplier<CompletableFuture<T>> search) {
+        if (!enabled) {
+            return search.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            collapsed.get(key.endpoint()).increment();
+            return leader.thenApply(result -> (T) result);
+        }
+        executed.get(key.endpoint()).increment();
+        CompletableFuture<T> result;
+        try {
+            result = search.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return result.whenComplete((response, e) -> {
+            inFlight.remove(key, future);
+            if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.complete(response);
+            }
+        });
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque continuation token of a result list: the sort values of the last hit returned and, for semantic
+ * searches, the stage that produced the results. Results are sorted by score with {@code product_id} as
+ * tiebreaker, so the next page is fetched with {@code search_after} instead of a growing {@code from}.
+ */
+public record SearchCursor(String stage, List<Object> sortValues) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TIEBREAKER = "product_id";
+
+    /**
+     * Sorts {@code source} in cursor order and continues after {@code after}, or pages with {@code from}
+     * when there is no cursor.
+     */
+    static SearchSourceBuilder page(SearchSourceBuilder source, Integer count, Integer page, SearchCursor after) {
+        source.sort("_score", SortOrder.DESC)
+                .sort(TIEBREAKER, SortOrder.ASC)
+                .size(count);
+        if (after == null) {
+            return source.from((page - 1) * count);
+        }
+        return source.searchAfter(after.sortValues().toArray());
+    }
+
+    /**
+     * Returns the token continuing after {@code hits}, or null when the page was not full and nothing follows.
+     */
+    static String next(String stage, SearchHit[] hits, Integer count) {
+        if (hits.length == 0 || hits.length < count) {
+            return null;
+        }
+        return new SearchCursor(stage, Arrays.asList(hits[hits.length - 1].getSortValues())).encode();
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode search cursor", e);
+        }
+    }
+
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            SearchCursor cursor = MAPPER.readValue(Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII)),
+                    SearchCursor.class);
+            if (cursor.sortValues() == null || cursor.sortValues().size() != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return cursor;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
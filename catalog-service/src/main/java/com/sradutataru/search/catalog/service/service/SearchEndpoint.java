@@ -0,0 +1,5 @@
+package com.sradutataru.search.catalog.service.service;
+
+public enum SearchEndpoint {
+    KEYWORD, SEMANTIC, TYPEAHEAD
+}
@@ -0,0 +1,38 @@
+package com.sradutataru.search.catalog.service.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Normalized identity of a search request: requests with equal keys are answered with the same response.
+ */
+public record SearchRequestKey(SearchEndpoint endpoint, String query, Integer count, Integer page, String cursor,
+                               String fields, Map<String, String> attributes) {
+
+    public static SearchRequestKey of(SearchEndpoint endpoint, String query, Integer count, Integer page,
+                                      Map<String, String> attributes) {
+        return of(endpoint, query, count, page, null, attributes);
+    }
+
+    /**
+     * Requests continuing after a cursor ignore {@code page}, so it is left out of their key.
+     */
+    public static SearchRequestKey of(SearchEndpoint endpoint, String query, Integer count, Integer page, String cursor,
+                                      Map<String, String> attributes) {
+        return of(endpoint, query, count, page, cursor, null, attributes);
+    }
+
+    /**
+     * @param fields canonical {@link FieldProjection#key()}, or null for endpoints without projection
+     */
+    public static SearchRequestKey of(SearchEndpoint endpoint, String query, Integer count, Integer page, String cursor,
+                                      String fields, Map<String, String> attributes) {
+        return new SearchRequestKey(endpoint, normalize(query), count, cursor == null ? page : null, cursor, fields,
+                attributes == null ? Map.of() : new TreeMap<>(attributes));
+    }
+
+    static String normalize(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,195 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sradutataru.search.catalog.service.config.SearchCacheProperties;
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+import com.sradutataru.search.catalog.service.dto.RawProductDto;
+import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches complete search responses keyed by the normalized request. All endpoints share one weight budget,
+ * each with its own TTL and switch. Entries are dropped when the live alias is swapped, and semantic entries
+ * also when a new tag dictionary generation is loaded.
+ * <p>
+ * Cached responses are shared between requests and must not be modified.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchResponseCache {
+
+    private final SearchCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<SearchEndpoint, Counter> hits = new EnumMap<>(SearchEndpoint.class);
+    private final Map<SearchEndpoint, Counter> misses = new EnumMap<>(SearchEndpoint.class);
+    private Cache<SearchRequestKey, Object> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeightBytes())
+                .weigher((SearchRequestKey key, Object value) -> weight(key) + weight(value))
+                .expireAfter(new Expiry<SearchRequestKey, Object>() {
+                    @Override
+                    public long expireAfterCreate(SearchRequestKey key, Object value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(properties.endpoint(key.endpoint()).getTtlMs());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(SearchRequestKey key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(SearchRequestKey key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.responses");
+        for (SearchEndpoint endpoint : SearchEndpoint.values()) {
+            String tag = endpoint.name().toLowerCase(Locale.ROOT);
+            hits.put(endpoint, meterRegistry.counter("catalog.search.cache.requests", "endpoint", tag, "result", "hit"));
+            misses.put(endpoint, meterRegistry.counter("catalog.search.cache.requests", "endpoint", tag, "result", "miss"));
+        }
+    }
+
+    /**
+     * Returns the cached response of the request, or runs {@code search} and caches its result.
+     * Null results are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(SearchRequestKey key, Supplier<T> search) {
+        if (!properties.endpoint(key.endpoint()).isEnabled()) {
+            return search.get();
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.get(key.endpoint()).increment();
+            return (T) cached;
+        }
+        misses.get(key.endpoint()).increment();
+        T response = search.get();
+        if (response != null) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * Async variant of {@link #get}: a miss runs {@code search} and caches its result once it completes.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(SearchRequestKey key, Supplier<CompletableFuture<T>> search) {
+        if (!properties.endpoint(key.endpoint()).isEnabled()) {
+            return search.get();
+        }
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.get(key.endpoint()).increment();
+            return CompletableFuture.completedFuture((T) cached);
+        }
+        misses.get(key.endpoint()).increment();
+        return search.get().whenComplete((response, e) -> {
+            if (response != null) {
+                cache.put(key, response);
+            }
+        });
+    }
+
+    @EventListener
+    public void onLiveIndexChanged(LiveIndexChangedEvent event) {
+        cache.invalidateAll();
+        log.info("Invalidated search response cache after the live alias moved to {}", event.currentIndices());
+    }
+
+    @EventListener
+    public void onTagDictionaryRefreshed(TagDictionaryRefreshedEvent event) {
+        cache.asMap().keySet().removeIf(key -> key.endpoint() == SearchEndpoint.SEMANTIC);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static int weight(SearchRequestKey key) {
+        return 96 + chars(key.query()) + chars(key.cursor()) + chars(key.fields()) + chars(key.attributes());
+    }
+
+    /**
+     * Rough retained size of a cached response: object headers plus two bytes per character of the strings
+     * a response is made of.
+     */
+    static int weight(Object value) {
+        if (value instanceof ProductResponse response) {
+            int weight = 128 + chars(response.getQ()) + chars(response.getStage()) + chars(response.getAttributes());
+            if (response.getProducts() != null) {
+                for (ProductDto product : response.getProducts()) {
+                    if (product instanceof RawProductDto raw) {
+                        weight += 64 + raw.getSource().length;
+                        continue;
+                    }
+                    weight += 256 + chars(product.getProductId()) + chars(product.getName()) + chars(product.getBrandName())
+                            + chars(product.getCategoryName()) + chars(product.getDescription())
+                            + chars(product.getSearchKeywords()) + chars(product.getReleaseDate())
+                            + chars(product.getAttributes()) + chars(product.getTags());
+                }
+            }
+            return weight;
+        }
+        if (value instanceof List<?> list) {
+            int weight = 64;
+            for (Object element : list) {
+                weight += 48 + chars(String.valueOf(element));
+            }
+            return weight;
+        }
+        return 1024;
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+
+    private static int chars(Map<String, String> values) {
+        if (values == null) {
+            return 0;
+        }
+        int weight = 64;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            weight += 32 + chars(entry.getKey()) + chars(entry.getValue());
+        }
+        return weight;
+    }
+
+    private static int chars(List<String> values) {
+        if (values == null) {
+            return 0;
+        }
+        int weight = 64;
+        for (String value : values) {
+            weight += chars(value);
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,87 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.SemanticStage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the compiled semantic stage plan. The plan is loaded once at startup and can be reloaded from the
+ * configured location without a restart, either on demand or automatically when a file location changes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SemanticConfigService {
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<SemanticPlan> plan = new AtomicReference<>();
+    private volatile long lastModified;
+
+    @Value("${catalog.semantic.config-location:classpath:semantic-config.json}")
+    private String configLocation;
+
+    @PostConstruct
+    void init() {
+        reload();
+    }
+
+    public SemanticPlan current() {
+        return plan.get();
+    }
+
+    /**
+     * Recompiles the plan from the configured location. The current plan is kept if the new one is invalid.
+     * The modification time is recorded before reading, whatever the outcome, so a broken file is reported
+     * once instead of on every poll and is retried as soon as it changes again.
+     */
+    public synchronized SemanticPlan reload() {
+        Resource resource = resourceLoader.getResource(configLocation);
+        lastModified = lastModified(resource);
+        try (InputStream is = resource.getInputStream()) {
+            Map<String, List<SemanticStage>> config = objectMapper.readValue(is, new TypeReference<>() {});
+            SemanticPlan compiled = SemanticPlan.compile(config.get("stages"));
+            plan.set(compiled);
+            log.info("Loaded semantic configuration with {} stages from {}", compiled.getStages().size(), configLocation);
+            return compiled;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("Failed to load semantic configuration", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.semantic.config-reload-interval-ms:30000}")
+    public void reloadIfModified() {
+        Resource resource = resourceLoader.getResource(configLocation);
+        if (!resource.isFile() || lastModified(resource) == lastModified) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Keeping previous semantic configuration: {}", e.getMessage());
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
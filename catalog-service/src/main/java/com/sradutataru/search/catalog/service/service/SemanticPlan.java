@@ -0,0 +1,28 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.SemanticStage;
+
+import java.util.List;
+
+/**
+ * Immutable, compiled form of {@code semantic-config.json}: the stages in the order they are tried.
+ */
+public final class SemanticPlan {
+
+    private final List<CompiledStage> stages;
+
+    private SemanticPlan(List<CompiledStage> stages) {
+        this.stages = stages;
+    }
+
+    public static SemanticPlan compile(List<SemanticStage> stages) {
+        if (stages == null || stages.isEmpty()) {
+            throw new IllegalArgumentException("Semantic configuration defines no stages");
+        }
+        return new SemanticPlan(stages.stream().map(CompiledStage::new).toList());
+    }
+
+    public List<CompiledStage> getStages() {
+        return stages;
+    }
+}
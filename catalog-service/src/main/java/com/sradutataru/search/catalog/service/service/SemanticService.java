@@ -1,35 +1,42 @@
 package com.sradutataru.search.catalog.service.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sradutataru.search.catalog.service.dto.ProductDto;
 import com.sradutataru.search.catalog.service.dto.ProductResponse;
-import com.sradutataru.search.catalog.service.dto.SemanticStage;
+import com.sradutataru.search.catalog.service.dto.SemanticDebugResponse;
+import com.sradutataru.search.catalog.service.dto.StageTrace;
 import com.sradutataru.search.catalog.service.dto.TagDto;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.sradutataru.search.catalog.service.dto.TagDto.MatchType.EXACT;
@@ -39,6 +46,7 @@ import static org.elasticsearch.client.RequestOptions.DEFAULT;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class SemanticService {
 
     private static final String TAGS_INDEX = "semantic-tags";
@@ -47,44 +55,332 @@ public class SemanticService {
 
     private final RestHighLevelClient client;
     private final ObjectMapper objectMapper;
+    private final ProductHitReader productHitReader;
+    private final TagDictionaryService tagDictionaryService;
+    private final SemanticConfigService semanticConfigService;
+    private final RecognitionCache recognitionCache;
+    private final ThreadPoolTaskExecutor applicationTaskExecutor;
+
+    @Value("${catalog.semantic.recognition-mode:batched}")
+    private RecognitionMode recognitionMode;
+
+    @Value("${catalog.semantic.stage-execution:sequential}")
+    private StageExecution stageExecution;
+
+    @Value("${catalog.semantic.debug.enabled:false}")
+    private boolean debugEnabled;
 
     public ProductResponse semanticSearch(String query, Integer count, Integer page, Map<String, String> attributeFilters) {
+        return semanticSearch(query, count, page, null, FieldProjection.FULL, attributeFilters);
+    }
+
+    /**
+     * With a cursor, only the stage that produced the previous page runs again, continuing after its last hit,
+     * and an empty page is returned once it is exhausted. Returns null when no stage matches, or when the cursor
+     * was issued by the keyword fallback.
+     */
+    public ProductResponse semanticSearch(String query, Integer count, Integer page, SearchCursor after,
+                                          FieldProjection fields, Map<String, String> attributeFilters) {
+        if (after != null && after.stage() == null) {
+            return null;
+        }
         try {
             List<TagDto> tags = getRecognisedTags(query);
-            List<SemanticStage> stages = loadSemanticConfig();
-            float matchPercent = (float) tags.stream().filter(tag -> !UNRECOGNISED.equals(tag.getMatchType())).count() / tags.size();
-            for (SemanticStage stage : stages) {
+            List<StageRequest> stageRequests = buildStageRequests(tags, count, page, after, fields, attributeFilters);
+            StageResult result;
+            if (after != null) {
+                StageRequest stageRequest = cursorStage(stageRequests, after);
+                result = new StageResult(stageRequest.stage(), client.search(stageRequest.request(), DEFAULT));
+            } else {
+                result = switch (stageExecution) {
+                    case SPECULATIVE -> executeStagesSpeculatively(stageRequests);
+                    case PROBE -> executeStagesWithProbes(stageRequests);
+                    default -> executeStagesSequentially(stageRequests);
+                };
+            }
+            if (result == null) {
+                return null;
+            }
+            return toProductResponse(query, count, page, after, attributeFilters, result);
+        } catch (IOException e) {
+            throw new RuntimeException("Semantic search failed", e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #semanticSearch}: every lookup goes through the async client, while merging
+     * recognised tags and binding hits run on the application task executor so they do not hold its I/O threads.
+     */
+    public CompletableFuture<ProductResponse> semanticSearchAsync(String query, Integer count, Integer page,
+                                                                  SearchCursor after, FieldProjection fields,
+                                                                  Map<String, String> attributeFilters) {
+        if (after != null && after.stage() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getRecognisedTagsAsync(query).thenCompose(tags -> {
+            List<StageRequest> stageRequests = buildStageRequests(tags, count, page, after, fields, attributeFilters);
+            if (after != null) {
+                StageRequest stageRequest = cursorStage(stageRequests, after);
+                return ElasticsearchFutures.search(client, stageRequest.request())
+                        .thenApply(sr -> new StageResult(stageRequest.stage(), sr));
+            }
+            return switch (stageExecution) {
+                case SPECULATIVE -> executeStagesSpeculativelyAsync(stageRequests);
+                case PROBE -> executeStagesWithProbesAsync(stageRequests);
+                default -> executeStagesSequentiallyAsync(stageRequests, 0);
+            };
+        }).thenApplyAsync(result -> {
+            if (result == null) {
+                return null;
+            }
+            try {
+                return toProductResponse(query, count, page, after, attributeFilters, result);
+            } catch (IOException e) {
+                throw new RuntimeException("Semantic search failed", e);
+            }
+        }, applicationTaskExecutor);
+    }
+
+    /**
+     * Runs the stages one by one like the sequential mode, but with scoring explanations enabled, and reports
+     * the generated query, timing and explanations of every stage tried. While debug mode is disabled the
+     * endpoint answers 404, as if it did not exist.
+     */
+    public SemanticDebugResponse semanticSearchDebug(String query, Integer count, Integer page, Map<String, String> attributeFilters) {
+        if (!debugEnabled) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Semantic search debug mode is disabled");
+        }
+        try {
+            long start = System.nanoTime();
+            List<TagDto> tags = getRecognisedTags(query);
+            long recognitionMillis = elapsedMillis(start);
+            float matchPercent = matchPercent(tags);
+            List<StageTrace> traces = new ArrayList<>();
+            for (CompiledStage stage : semanticConfigService.current().getStages()) {
                 if(matchPercent < stage.getMinMatchPercent()) {
+                    traces.add(new StageTrace(stage.getName(), StageTrace.Outcome.SKIPPED_MATCH_PERCENT, null, null, null, null));
                     continue;
                 }
                 DisMaxQueryBuilder stageQuery = buildStageQuery(tags, stage, attributeFilters);
                 if(stageQuery == null) {
+                    traces.add(new StageTrace(stage.getName(), StageTrace.Outcome.SKIPPED_UNMATCHED_FIELDS, null, null, null, null));
                     continue;
                 }
-                SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
-                        .query(stageQuery)
-                        .from((page - 1) * count)
-                        .size(count)
-                        .explain(true);
-                SearchRequest searchRequest = new SearchRequest(INDEX).source(sourceBuilder);
-                SearchResponse sr = client.search(searchRequest, DEFAULT);
+                long stageStart = System.nanoTime();
+                SearchRequest request = new SearchRequest(INDEX).source(stageSource(stageQuery, count, page, null, FieldProjection.FULL).explain(true));
+                SearchResponse sr = client.search(request, DEFAULT);
+                long tookMillis = elapsedMillis(stageStart);
+                Map<String, String> explanations = new LinkedHashMap<>();
+                for (SearchHit hit : sr.getHits().getHits()) {
+                    explanations.put(hit.getId(), String.valueOf(hit.getExplanation()));
+                }
                 long totalHits = sr.getHits().getTotalHits().value;
+                traces.add(new StageTrace(stage.getName(), totalHits > 0 ? StageTrace.Outcome.MATCHED : StageTrace.Outcome.NO_HITS,
+                        stageQuery.toString(), totalHits, tookMillis, explanations));
                 if (totalHits > 0) {
-                    List<ProductDto> products = new ArrayList<>();
-                    for (SearchHit hit : sr.getHits().getHits()) {
-                        ProductDto product = objectMapper.readValue(hit.getSourceAsString(), ProductDto.class);
-                        products.add(product);
-                    }
-                    return new ProductResponse(query, totalHits, attributeFilters, products, count, page, stage.getName());
+                    ProductResponse response = toProductResponse(query, count, page, null, attributeFilters, new StageResult(stage, sr));
+                    return new SemanticDebugResponse(response, tags, recognitionMillis, traces);
                 }
             }
-            return null;
+            return new SemanticDebugResponse(null, tags, recognitionMillis, traces);
         } catch (IOException e) {
             throw new RuntimeException("Semantic search failed", e);
         }
     }
 
-    private DisMaxQueryBuilder buildStageQuery(List<TagDto> recognizedTags, SemanticStage stage, Map<String, String> attributeFilters) {
+    private ProductResponse toProductResponse(String query, Integer count, Integer page, SearchCursor after,
+                                              Map<String, String> attributeFilters, StageResult result) throws IOException {
+        SearchHit[] hits = result.response().getHits().getHits();
+        List<ProductDto> products = productHitReader.read(hits);
+        String stage = result.stage().getName();
+        return new ProductResponse(query, result.response().getHits().getTotalHits().value, attributeFilters, products,
+                count, after == null ? page : null, stage, SearchCursor.next(stage, hits, count));
+    }
+
+    /**
+     * Builds the query of every stage eligible for the recognised tags, in priority order. With a cursor only
+     * the stage named in it is kept.
+     */
+    private List<StageRequest> buildStageRequests(List<TagDto> tags, Integer count, Integer page, SearchCursor after,
+                                                  FieldProjection fields, Map<String, String> attributeFilters) {
+        List<StageRequest> stageRequests = new ArrayList<>();
+        float matchPercent = matchPercent(tags);
+        for (CompiledStage stage : semanticConfigService.current().getStages()) {
+            if (after != null && !stage.getName().equals(after.stage())) {
+                continue;
+            }
+            if(matchPercent < stage.getMinMatchPercent()) {
+                continue;
+            }
+            DisMaxQueryBuilder stageQuery = buildStageQuery(tags, stage, attributeFilters);
+            if(stageQuery == null) {
+                continue;
+            }
+            SearchRequest request = new SearchRequest(INDEX).source(stageSource(stageQuery, count, page, after, fields));
+            stageRequests.add(new StageRequest(stage, stageQuery, request));
+        }
+        return stageRequests;
+    }
+
+    private static StageRequest cursorStage(List<StageRequest> stageRequests, SearchCursor after) {
+        if (stageRequests.isEmpty()) {
+            throw new IllegalArgumentException("Cursor stage " + after.stage() + " no longer applies to the query");
+        }
+        return stageRequests.get(0);
+    }
+
+    private static SearchSourceBuilder stageSource(DisMaxQueryBuilder stageQuery, Integer count, Integer page, SearchCursor after,
+                                                   FieldProjection fields) {
+        return fields.apply(SearchCursor.page(new SearchSourceBuilder().query(stageQuery), count, page, after));
+    }
+
+    private static float matchPercent(List<TagDto> tags) {
+        return (float) tags.stream().filter(tag -> !UNRECOGNISED.equals(tag.getMatchType())).count() / tags.size();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private StageResult executeStagesSequentially(List<StageRequest> stageRequests) throws IOException {
+        for (StageRequest stageRequest : stageRequests) {
+            SearchResponse sr = client.search(stageRequest.request(), DEFAULT);
+            if (sr.getHits().getTotalHits().value > 0) {
+                return new StageResult(stageRequest.stage(), sr);
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<StageResult> executeStagesSequentiallyAsync(List<StageRequest> stageRequests, int from) {
+        if (from >= stageRequests.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        StageRequest stageRequest = stageRequests.get(from);
+        return ElasticsearchFutures.search(client, stageRequest.request()).thenCompose(sr ->
+                sr.getHits().getTotalHits().value > 0
+                        ? CompletableFuture.completedFuture(new StageResult(stageRequest.stage(), sr))
+                        : executeStagesSequentiallyAsync(stageRequests, from + 1));
+    }
+
+    /**
+     * Sends every stage query in one {@code _msearch} and keeps the highest-priority stage with hits. A failed
+     * stage only fails the search when it ranks above the winner, since it might have matched.
+     */
+    private StageResult executeStagesSpeculatively(List<StageRequest> stageRequests) throws IOException {
+        if (stageRequests.isEmpty()) {
+            return null;
+        }
+        return firstStageWithHits(stageRequests, client.msearch(stagesRequest(stageRequests), DEFAULT).getResponses());
+    }
+
+    private CompletableFuture<StageResult> executeStagesSpeculativelyAsync(List<StageRequest> stageRequests) {
+        if (stageRequests.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ElasticsearchFutures.msearch(client, stagesRequest(stageRequests)).thenApply(response -> {
+            try {
+                return firstStageWithHits(stageRequests, response.getResponses());
+            } catch (IOException e) {
+                throw new RuntimeException("Semantic search failed", e);
+            }
+        });
+    }
+
+    private static MultiSearchRequest stagesRequest(List<StageRequest> stageRequests) {
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        stageRequests.forEach(stageRequest -> multiSearchRequest.add(stageRequest.request()));
+        return multiSearchRequest;
+    }
+
+    private static StageResult firstStageWithHits(List<StageRequest> stageRequests, MultiSearchResponse.Item[] items)
+            throws IOException {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].isFailure()) {
+                throw new IOException("Stage " + stageRequests.get(i).stage().getName() + " failed", items[i].getFailure());
+            }
+            SearchResponse sr = items[i].getResponse();
+            if (sr.getHits().getTotalHits().value > 0) {
+                return new StageResult(stageRequests.get(i).stage(), sr);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Asks every stage whether it has any hit in one {@code _msearch} of existence probes, then runs the full
+     * query only for the highest-priority stage that has one. Probes stop collecting at the first hit per shard
+     * and fetch nothing; totals are tracked up to 1 so the response still tells whether the stage matched.
+     */
+    private StageResult executeStagesWithProbes(List<StageRequest> stageRequests) throws IOException {
+        if (stageRequests.isEmpty()) {
+            return null;
+        }
+        MultiSearchResponse.Item[] items = client.msearch(probesRequest(stageRequests), DEFAULT).getResponses();
+        for (int i = nextProbeHit(stageRequests, items, 0); i >= 0; i = nextProbeHit(stageRequests, items, i + 1)) {
+            SearchResponse sr = client.search(stageRequests.get(i).request(), DEFAULT);
+            if (sr.getHits().getTotalHits().value > 0) {
+                return new StageResult(stageRequests.get(i).stage(), sr);
+            }
+        }
+        return null;
+    }
+
+    private CompletableFuture<StageResult> executeStagesWithProbesAsync(List<StageRequest> stageRequests) {
+        if (stageRequests.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ElasticsearchFutures.msearch(client, probesRequest(stageRequests))
+                .thenCompose(response -> fetchProbedStageAsync(stageRequests, response.getResponses(), 0));
+    }
+
+    private CompletableFuture<StageResult> fetchProbedStageAsync(List<StageRequest> stageRequests,
+                                                                 MultiSearchResponse.Item[] items, int from) {
+        int i;
+        try {
+            i = nextProbeHit(stageRequests, items, from);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Semantic search failed", e));
+        }
+        if (i < 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ElasticsearchFutures.search(client, stageRequests.get(i).request()).thenCompose(sr ->
+                sr.getHits().getTotalHits().value > 0
+                        ? CompletableFuture.completedFuture(new StageResult(stageRequests.get(i).stage(), sr))
+                        : fetchProbedStageAsync(stageRequests, items, i + 1));
+    }
+
+    private static MultiSearchRequest probesRequest(List<StageRequest> stageRequests) {
+        MultiSearchRequest probes = new MultiSearchRequest();
+        for (StageRequest stageRequest : stageRequests) {
+            SearchSourceBuilder probeSource = new SearchSourceBuilder()
+                    .query(stageRequest.query())
+                    .size(0)
+                    .terminateAfter(1)
+                    .trackTotalHitsUpTo(1);
+            probes.add(new SearchRequest(INDEX).source(probeSource));
+        }
+        return probes;
+    }
+
+    /**
+     * Returns the index of the first stage from {@code from} on whose probe found a hit, or -1.
+     */
+    private static int nextProbeHit(List<StageRequest> stageRequests, MultiSearchResponse.Item[] items, int from)
+            throws IOException {
+        for (int i = from; i < items.length; i++) {
+            if (items[i].isFailure()) {
+                throw new IOException("Stage " + stageRequests.get(i).stage().getName() + " probe failed", items[i].getFailure());
+            }
+            if (items[i].getResponse().getHits().getTotalHits().value > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static DisMaxQueryBuilder buildStageQuery(List<TagDto> recognizedTags, CompiledStage stage, Map<String, String> attributeFilters) {
         Map<String, List<TagDto>> tagPerKeyword = recognizedTags.stream().collect(Collectors.toMap(tag->tag.getOriginalToken().toLowerCase(), List::of, (t1, t2) -> {
             List<TagDto> tags = new ArrayList<>();
             tags.addAll(t1);
@@ -105,7 +401,7 @@ public class SemanticService {
                 if(!fieldVariant.startsWith("attribute")) {
                     fieldVariant += "." + tagDto.getType();
                 }
-                float fieldBoostFromStage = getFieldBoostFromStage(stage, fieldVariant);
+                float fieldBoostFromStage = stage.boostFor(fieldVariant);
                 if (fieldBoostFromStage != -1) {
                     matched = true;
                     float boost = fieldBoostFromStage;
@@ -130,62 +426,163 @@ public class SemanticService {
             return null;
         }
         if(!unrecognizedTags.isEmpty()) {
-            boolQuery.add(QueryBuilders.moreLikeThisQuery(stage.getFields().keySet().toArray(String[]::new), unrecognizedTags.stream().map(TagDto::getOriginalToken).toArray(String[]::new), null));
+            boolQuery.add(QueryBuilders.moreLikeThisQuery(stage.getSimilarityFields(), unrecognizedTags.stream().map(TagDto::getOriginalToken).toArray(String[]::new), null));
         }
         return boolQuery;
     }
 
-    private static float getFieldBoostFromStage(SemanticStage stage, String fieldVariant) {
-        if(stage.getFields().containsKey(fieldVariant)) {
-            return stage.getFields().get(fieldVariant);
+    public List<TagDto> getRecognisedTags(String query) {
+        return recognitionCache.get(query, tagDictionaryService.current().getGeneration(), this::recogniseTags);
+    }
+
+    public CompletableFuture<List<TagDto>> getRecognisedTagsAsync(String query) {
+        return recognitionCache.getAsync(query, tagDictionaryService.current().getGeneration(), this::recogniseTagsAsync);
+    }
+
+    private List<TagDto> recogniseTags(String query) {
+        String[] tokens = query.split(" ");
+        if (recognitionMode == RecognitionMode.LOCAL && tagDictionaryService.isLoaded()) {
+            return recogniseLocally(tokens, tagDictionaryService.current());
         }
-        Optional<Map.Entry<String, Float>> dynamicBoost = stage.getDynamicFields().entrySet().stream().filter(entry -> Regex.compile(entry.getKey(), null).matcher(fieldVariant).matches()).findFirst();
-        if(dynamicBoost.isPresent()) {
-            return dynamicBoost.get().getValue();
+        List<SearchRequest> requests = buildRecognitionRequests(query, tokens);
+        List<SearchResponse> responses = recognitionMode == RecognitionMode.SEQUENTIAL
+                ? executeSequentially(requests)
+                : executeBatched(requests);
+        return mergeRecognitionResponses(tokens, responses);
+    }
+
+    private CompletableFuture<List<TagDto>> recogniseTagsAsync(String query) {
+        String[] tokens = query.split(" ");
+        if (recognitionMode == RecognitionMode.LOCAL && tagDictionaryService.isLoaded()) {
+            return CompletableFuture.completedFuture(recogniseLocally(tokens, tagDictionaryService.current()));
         }
-        return -1;
+        List<SearchRequest> requests = buildRecognitionRequests(query, tokens);
+        CompletableFuture<List<SearchResponse>> responses = recognitionMode == RecognitionMode.SEQUENTIAL
+                ? executeSequentiallyAsync(requests)
+                : executeBatchedAsync(requests);
+        return responses.thenApplyAsync(lookups -> mergeRecognitionResponses(tokens, lookups), applicationTaskExecutor);
     }
 
-    public List<TagDto> getRecognisedTags(String query) {
+    /**
+     * Builds every recognition lookup up front, in merge order: one exact match per token,
+     * one phrase match for the whole query, then one fuzzy match per token.
+     */
+    private List<SearchRequest> buildRecognitionRequests(String query, String[] tokens) {
+        List<SearchRequest> requests = new ArrayList<>(2 * tokens.length + 1);
+        for (String token : tokens) {
+            BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
+            queryBuilder.should(QueryBuilders.matchQuery("tag", token));
+            requests.add(tagsRequest(queryBuilder));
+        }
+        requests.add(tagsRequest(QueryBuilders.matchPhraseQuery("tag", query)));
+        for (String token : tokens) {
+            requests.add(fuzzyRequest(token));
+        }
+        return requests;
+    }
+
+    static SearchRequest fuzzyRequest(String token) {
+        BoolQueryBuilder fuzzyQueryBuilder = QueryBuilders.boolQuery();
+        fuzzyQueryBuilder.must(QueryBuilders.matchQuery("tag", token).fuzziness("AUTO"));
+        return tagsRequest(fuzzyQueryBuilder);
+    }
+
+    private static SearchRequest tagsRequest(QueryBuilder query) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(query)
+                .size(100)
+                .highlighter(HIGHLIGHT_BUILDER);
+        return new SearchRequest(TAGS_INDEX).source(source);
+    }
+
+    private List<SearchResponse> executeBatched(List<SearchRequest> requests) {
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        requests.forEach(multiSearchRequest::add);
+        try {
+            return recognitionResponses(client.msearch(multiSearchRequest, DEFAULT));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to retrieve recognized tags", e);
+        }
+    }
+
+    private CompletableFuture<List<SearchResponse>> executeBatchedAsync(List<SearchRequest> requests) {
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        requests.forEach(multiSearchRequest::add);
+        return ElasticsearchFutures.msearch(client, multiSearchRequest).thenApply(SemanticService::recognitionResponses);
+    }
+
+    private static List<SearchResponse> recognitionResponses(MultiSearchResponse multiSearchResponse) {
+        List<SearchResponse> responses = new ArrayList<>(multiSearchResponse.getResponses().length);
+        for (MultiSearchResponse.Item item : multiSearchResponse.getResponses()) {
+            if (item.isFailure()) {
+                log.warn("Tag recognition lookup failed: {}", item.getFailureMessage());
+                responses.add(null);
+            } else {
+                responses.add(item.getResponse());
+            }
+        }
+        return responses;
+    }
+
+    private List<SearchResponse> executeSequentially(List<SearchRequest> requests) {
+        List<SearchResponse> responses = new ArrayList<>(requests.size());
+        for (SearchRequest request : requests) {
+            try {
+                responses.add(client.search(request, DEFAULT));
+            } catch (IOException e) {
+                log.warn("Tag recognition lookup failed: {}", e.getMessage(), e);
+                responses.add(null);
+            }
+        }
+        return responses;
+    }
+
+    private CompletableFuture<List<SearchResponse>> executeSequentiallyAsync(List<SearchRequest> requests) {
+        CompletableFuture<List<SearchResponse>> chain = CompletableFuture.completedFuture(new ArrayList<>(requests.size()));
+        for (SearchRequest request : requests) {
+            chain = chain.thenCompose(responses -> ElasticsearchFutures.search(client, request).handle((response, e) -> {
+                if (e != null) {
+                    log.warn("Tag recognition lookup failed: {}", e.getMessage(), e);
+                }
+                responses.add(response);
+                return responses;
+            }));
+        }
+        return chain;
+    }
+
+    /**
+     * Merges the responses of {@link #buildRecognitionRequests} into tags. A failed token lookup is skipped,
+     * a failed phrase lookup fails the whole recognition.
+     */
+    private List<TagDto> mergeRecognitionResponses(String[] tokens, List<SearchResponse> responses) {
         List<TagDto> recognizedTags = new ArrayList<>();
         Set<String> matchedTokens = new HashSet<>();
-        String[] tokens = query.trim().split("\\s+");
 
         try {
-            Arrays.stream(tokens).forEach(token -> {
-                try {
-                    BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
-                    queryBuilder.should(QueryBuilders.matchQuery("tag", token));
-                    SearchSourceBuilder exactSource = new SearchSourceBuilder()
-                            .query(queryBuilder)
-                            .size(100)
-                            .highlighter(HIGHLIGHT_BUILDER);
-                    SearchRequest exactRequest = new SearchRequest(TAGS_INDEX).source(exactSource);
-                    SearchResponse exactResponse = client.search(exactRequest, RequestOptions.DEFAULT);
-                    for (SearchHit hit : exactResponse.getHits().getHits()) {
-                        TagDto tag = objectMapper.readValue(hit.getSourceAsString(), TagDto.class);
-                        Map<String, HighlightField> highlights = hit.getHighlightFields();
-                        if (highlights.containsKey("tag")) {
-                            removeMatchedKeywordsFromQuery(matchedTokens, tag, highlights);
-                        } else {
-                            matchedTokens.add(tag.getTag().toLowerCase());
-                        }
-                        tag.setMatchType(EXACT);
-                        String matchedTag = tag.getTag().replaceAll("<em>", "").replaceAll("</em>", "");
-                        tag.setTag(matchedTag);
-                        tag.setOriginalToken(token);
-                        recognizedTags.add(tag);
+            for (int i = 0; i < tokens.length; i++) {
+                SearchResponse exactResponse = responses.get(i);
+                if (exactResponse == null) {
+                    continue;
+                }
+                for (SearchHit hit : exactResponse.getHits().getHits()) {
+                    TagDto tag = objectMapper.readValue(hit.getSourceAsString(), TagDto.class);
+                    Map<String, HighlightField> highlights = hit.getHighlightFields();
+                    if (highlights.containsKey("tag")) {
+                        removeMatchedKeywordsFromQuery(matchedTokens, tag, highlights);
+                    } else {
+                        matchedTokens.add(tag.getTag().toLowerCase());
                     }
-                } catch (IOException e) {
-                    e.printStackTrace();
+                    tag.setMatchType(EXACT);
+                    tag.setTag(stripHighlight(tag.getTag()));
+                    tag.setOriginalToken(tokens[i]);
+                    recognizedTags.add(tag);
                 }
-            });
-            SearchSourceBuilder phraseSource = new SearchSourceBuilder()
-                    .query(QueryBuilders.matchPhraseQuery("tag", query))
-                    .size(100)
-                    .highlighter(HIGHLIGHT_BUILDER);
-            SearchRequest phraseRequest = new SearchRequest(TAGS_INDEX).source(phraseSource);
-            SearchResponse phraseResponse = client.search(phraseRequest, RequestOptions.DEFAULT);
+            }
+            SearchResponse phraseResponse = responses.get(tokens.length);
+            if (phraseResponse == null) {
+                throw new IOException("Phrase lookup failed");
+            }
             for (SearchHit hit : phraseResponse.getHits().getHits()) {
                 TagDto tag = objectMapper.readValue(hit.getSourceAsString(), TagDto.class);
                 Map<String, HighlightField> highlights = hit.getHighlightFields();
@@ -193,37 +590,72 @@ public class SemanticService {
                     removeMatchedKeywordsFromQuery(matchedTokens, tag, highlights);
                 }
                 tag.setMatchType(EXACT);
-                String matchedTag = tag.getTag().replaceAll("<em>", "").replaceAll("</em>", "");
+                String matchedTag = stripHighlight(tag.getTag());
                 tag.setTag(matchedTag);
                 tag.setOriginalToken(matchedTag);
                 recognizedTags.add(tag);
             }
-            Arrays.stream(tokens).forEach(token -> {
-                try {
-                    BoolQueryBuilder fuzzyQueryBuilder = QueryBuilders.boolQuery();
-                    fuzzyQueryBuilder.must(QueryBuilders.matchQuery("tag", token).fuzziness("AUTO"));
-                    SearchSourceBuilder fuzzySource = new SearchSourceBuilder()
-                            .query(fuzzyQueryBuilder)
-                            .size(100)
-                            .highlighter(HIGHLIGHT_BUILDER);
-                    SearchRequest fuzzyRequest = new SearchRequest(TAGS_INDEX).source(fuzzySource);
-                    SearchResponse fuzzyResponse = client.search(fuzzyRequest, RequestOptions.DEFAULT);
-                    for (SearchHit hit : fuzzyResponse.getHits().getHits()) {
-                        TagDto tag = objectMapper.readValue(hit.getSourceAsString(), TagDto.class);
-                        Map<String, HighlightField> highlights = hit.getHighlightFields();
-                        tag.setMatchType(SPELLCHECK);
-                        tag.setTag(tag.getTag().replaceAll("<em>", "").replaceAll("</em>", ""));
-                        tag.setOriginalToken(token);
-                        matchedTokens.add(token.toLowerCase());
-                        recognizedTags.add(tag);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            });
+            for (int i = 0; i < tokens.length; i++) {
+                addSpellcheckTags(tokens[i], responses.get(tokens.length + 1 + i), recognizedTags, matchedTokens);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Failed to retrieve recognized tags", e);
         }
+        return completeRecognition(tokens, recognizedTags, matchedTokens);
+    }
+
+    /**
+     * Resolves recognition entirely from the in-memory dictionary: exact and whole-query phrase matches mirror
+     * what the keyword-normalized {@code tag} field matches in Elasticsearch, and tokens left unmatched go
+     * through the local spelling corrector instead of a fuzzy query.
+     */
+    private List<TagDto> recogniseLocally(String[] tokens, TagDictionary dictionary) {
+        List<TagDto> recognizedTags = new ArrayList<>();
+        Set<String> matchedTokens = new HashSet<>();
+        for (String token : tokens) {
+            for (TagDto tag : dictionary.exact(token)) {
+                markMatched(matchedTokens, tag.getTag());
+                tag.setMatchType(EXACT);
+                tag.setOriginalToken(token);
+                recognizedTags.add(tag);
+            }
+        }
+        for (TagDto tag : dictionary.exact(String.join(" ", tokens))) {
+            markMatched(matchedTokens, tag.getTag());
+            tag.setMatchType(EXACT);
+            tag.setOriginalToken(tag.getTag());
+            recognizedTags.add(tag);
+        }
+        for (String token : tokens) {
+            if (matchedTokens.contains(token.toLowerCase())) {
+                continue;
+            }
+            for (TagDto tag : dictionary.corrections(token, 100)) {
+                tag.setMatchType(SPELLCHECK);
+                tag.setOriginalToken(token);
+                matchedTokens.add(token.toLowerCase());
+                recognizedTags.add(tag);
+            }
+        }
+        return completeRecognition(tokens, recognizedTags, matchedTokens);
+    }
+
+    private void addSpellcheckTags(String token, SearchResponse fuzzyResponse, List<TagDto> recognizedTags,
+                                   Set<String> matchedTokens) throws IOException {
+        if (fuzzyResponse == null) {
+            return;
+        }
+        for (SearchHit hit : fuzzyResponse.getHits().getHits()) {
+            TagDto tag = objectMapper.readValue(hit.getSourceAsString(), TagDto.class);
+            tag.setMatchType(SPELLCHECK);
+            tag.setTag(stripHighlight(tag.getTag()));
+            tag.setOriginalToken(token);
+            matchedTokens.add(token.toLowerCase());
+            recognizedTags.add(tag);
+        }
+    }
+
+    private static List<TagDto> completeRecognition(String[] tokens, List<TagDto> recognizedTags, Set<String> matchedTokens) {
         for (String token : tokens) {
             if (!matchedTokens.contains(token.toLowerCase())) {
                 TagDto tag = new TagDto();
@@ -244,6 +676,16 @@ public class SemanticService {
                 .collect(Collectors.toList());
     }
 
+    private static void markMatched(Set<String> matchedTokens, String tag) {
+        for (String word : tag.split("\\s+")) {
+            matchedTokens.add(word.toLowerCase());
+        }
+    }
+
+    private static String stripHighlight(String tag) {
+        return tag.replaceAll("<em>", "").replaceAll("</em>", "");
+    }
+
     private void removeMatchedKeywordsFromQuery(Set<String> matchedTokens, TagDto tag, Map<String, HighlightField> highlights) {
         String highlighted = Arrays.stream(highlights.get("tag").getFragments())
                 .map(Object::toString)
@@ -255,14 +697,17 @@ public class SemanticService {
         }
     }
 
-    private List<SemanticStage> loadSemanticConfig() {
-        try (InputStream is = ProductService.class.getResourceAsStream("/semantic-config.json")) {
-            Map<String, List<SemanticStage>> config = new ObjectMapper().readValue(is, new TypeReference<>() {});
-            return config.get("stages");
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to load semantic configuration", e);
-        }
+    private record StageRequest(CompiledStage stage, DisMaxQueryBuilder query, SearchRequest request) {
     }
 
+    private record StageResult(CompiledStage stage, SearchResponse response) {
+    }
 
+    public enum RecognitionMode {
+        SEQUENTIAL, BATCHED, LOCAL
+    }
+
+    public enum StageExecution {
+        SEQUENTIAL, SPECULATIVE, PROBE
+    }
 }
@@ -0,0 +1,158 @@
+package com.sradutataru.search.catalog.service.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Symmetric-delete spelling corrector over the tag vocabulary. Every term is indexed under all the
+ * strings obtained by deleting up to {@link #MAX_DISTANCE} characters, so a lookup only has to generate
+ * the deletes of the input and verify the candidates sharing one of them.
+ * <p>
+ * Distances follow the {@code fuzziness: AUTO} rules of the Elasticsearch fuzzy query this replaces:
+ * no edits below 3 characters, one edit up to 5 characters and two edits above, transpositions counting
+ * as a single edit.
+ */
+final class SpellCorrector {
+
+    static final int MAX_DISTANCE = 2;
+    static final int MAX_EXPANSIONS = 50;
+
+    /**
+     * Terms longer than this cannot be within {@link #MAX_DISTANCE} edits of a realistic single query
+     * token, and would only inflate the delete index.
+     */
+    private static final int MAX_INDEXED_LENGTH = 32;
+
+    private final String[] terms;
+    private final float[] ranks;
+    private final Map<String, int[]> deletes;
+
+    private SpellCorrector(String[] terms, float[] ranks, Map<String, int[]> deletes) {
+        this.terms = terms;
+        this.ranks = ranks;
+        this.deletes = deletes;
+    }
+
+    /**
+     * @param terms distinct lowercased terms
+     * @param ranks tie-break rank of each term, higher first
+     */
+    static SpellCorrector build(List<String> terms, float[] ranks) {
+        Map<String, List<Integer>> index = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            if (term.length() > MAX_INDEXED_LENGTH) {
+                continue;
+            }
+            for (String delete : deletes(term, MAX_DISTANCE)) {
+                index.computeIfAbsent(delete, key -> new ArrayList<>(2)).add(i);
+            }
+        }
+        Map<String, int[]> deletes = new HashMap<>(index.size() * 4 / 3 + 1);
+        index.forEach((delete, ids) -> deletes.put(delete, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return new SpellCorrector(terms.toArray(String[]::new), ranks, deletes);
+    }
+
+    /**
+     * Returns the terms within the automatic edit distance of {@code token}, closest first, then by rank.
+     */
+    List<Suggestion> lookup(String token) {
+        String input = TagDictionary.key(token);
+        int maxDistance = autoDistance(input);
+        if (maxDistance == 0) {
+            return List.of();
+        }
+        Set<Integer> seen = new HashSet<>();
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (String delete : deletes(input, maxDistance)) {
+            int[] candidates = deletes.get(delete);
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (!seen.add(candidate)) {
+                    continue;
+                }
+                int distance = distance(input, terms[candidate], maxDistance);
+                if (distance <= maxDistance) {
+                    suggestions.add(new Suggestion(terms[candidate], distance, ranks[candidate]));
+                }
+            }
+        }
+        suggestions.sort(Comparator.comparingInt(Suggestion::distance)
+                .thenComparing(Comparator.comparingDouble(Suggestion::rank).reversed())
+                .thenComparing(Suggestion::term));
+        return suggestions.size() > MAX_EXPANSIONS ? suggestions.subList(0, MAX_EXPANSIONS) : suggestions;
+    }
+
+    static int autoDistance(String token) {
+        int length = token.codePointCount(0, token.length());
+        if (length < 3) {
+            return 0;
+        }
+        return length < 6 ? 1 : MAX_DISTANCE;
+    }
+
+    private static Set<String> deletes(String term, int maxDistance) {
+        Set<String> result = new HashSet<>();
+        result.add(term);
+        List<String> frontier = List.of(term);
+        for (int distance = 0; distance < maxDistance; distance++) {
+            List<String> next = new ArrayList<>();
+            for (String word : frontier) {
+                for (int i = 0; i < word.length(); i++) {
+                    String delete = word.substring(0, i) + word.substring(i + 1);
+                    if (result.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance, giving up with {@code max + 1} once it is exceeded.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    record Suggestion(String term, int distance, float rank) {
+    }
+}
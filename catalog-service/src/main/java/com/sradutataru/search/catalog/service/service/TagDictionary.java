@@ -0,0 +1,168 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.TagDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable snapshot of the {@code semantic-tags} index, keyed by lowercased tag.
+ * Keys are kept as a sorted array so exact and prefix lookups are binary searches,
+ * and the tags sharing a key are stored contiguously in {@code entries}.
+ */
+public final class TagDictionary {
+
+    private static final TagDictionary EMPTY = new TagDictionary(new String[0], new int[]{0}, new TagDto[0], 0);
+
+    /**
+     * Total order over the indexed fields of a tag, so the same index content always sorts the same way.
+     */
+    private static final Comparator<TagDto> ENTRY_ORDER = Comparator.comparing((TagDto tag) -> key(tag.getTag()))
+            .thenComparing(TagDto::getSourceId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(TagDto::getTag)
+            .thenComparing(TagDto::getField, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(TagDto::getType, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(TagDto::getWeight);
+
+    private final String[] keys;
+    private final int[] offsets;
+    private final TagDto[] entries;
+    private final long generation;
+    private final SpellCorrector spellCorrector;
+
+    private TagDictionary(String[] keys, int[] offsets, TagDto[] entries, long generation) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.entries = entries;
+        this.generation = generation;
+        this.spellCorrector = SpellCorrector.build(List.of(keys), maxWeights(keys.length, offsets, entries));
+    }
+
+    public static TagDictionary empty() {
+        return EMPTY;
+    }
+
+    public static TagDictionary build(Collection<TagDto> tags, long generation) {
+        TagDto[] sorted = sort(tags);
+        List<String> keys = new ArrayList<>();
+        int[] offsets = new int[sorted.length + 1];
+        for (int i = 0; i < sorted.length; i++) {
+            String key = key(sorted[i].getTag());
+            if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(key)) {
+                offsets[keys.size()] = i;
+                keys.add(key);
+            }
+        }
+        offsets[keys.size()] = sorted.length;
+        return new TagDictionary(keys.toArray(String[]::new), Arrays.copyOf(offsets, keys.size() + 1), sorted, generation);
+    }
+
+    /**
+     * Whether {@code tags} hold exactly the entries of this dictionary, compared field by field so an unchanged
+     * index can be detected without building a new dictionary.
+     */
+    public boolean hasSameTags(Collection<TagDto> tags) {
+        TagDto[] sorted = sort(tags);
+        if (sorted.length != entries.length) {
+            return false;
+        }
+        for (int i = 0; i < sorted.length; i++) {
+            if (ENTRY_ORDER.compare(sorted[i], entries[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns copies of the tags whose whole value equals {@code text}, ignoring case.
+     */
+    public List<TagDto> exact(String text) {
+        int index = Arrays.binarySearch(keys, key(text));
+        if (index < 0) {
+            return List.of();
+        }
+        return copies(offsets[index], offsets[index + 1], Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns copies of at most {@code limit} tags starting with {@code prefix}, ignoring case, in key order.
+     */
+    public List<TagDto> prefix(String prefix, int limit) {
+        String key = key(prefix);
+        int index = Arrays.binarySearch(keys, key);
+        int first = index < 0 ? -index - 1 : index;
+        int last = first;
+        while (last < keys.length && keys[last].startsWith(key)) {
+            last++;
+        }
+        return copies(offsets[first], offsets[last], limit);
+    }
+
+    /**
+     * Returns copies of at most {@code limit} tags whose value is within the automatic edit distance of
+     * {@code token}, closest terms first. Tokens too short to be corrected return nothing.
+     */
+    public List<TagDto> corrections(String token, int limit) {
+        List<TagDto> result = new ArrayList<>();
+        for (SpellCorrector.Suggestion suggestion : spellCorrector.lookup(token)) {
+            int index = Arrays.binarySearch(keys, suggestion.term());
+            result.addAll(copies(offsets[index], offsets[index + 1], limit - result.size()));
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distinct lowercased tags, in sorted order.
+     */
+    public List<String> terms() {
+        return List.of(keys);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    private List<TagDto> copies(int from, int to, int limit) {
+        List<TagDto> result = new ArrayList<>(Math.min(to - from, limit));
+        for (int i = from; i < to && result.size() < limit; i++) {
+            TagDto tag = entries[i];
+            result.add(new TagDto(tag.getTag(), tag.getField(), tag.getType(), tag.getSourceId(), tag.getWeight(), null, null));
+        }
+        return result;
+    }
+
+    private static TagDto[] sort(Collection<TagDto> tags) {
+        return tags.stream()
+                .filter(tag -> tag.getTag() != null)
+                .sorted(ENTRY_ORDER)
+                .toArray(TagDto[]::new);
+    }
+
+    private static float[] maxWeights(int keyCount, int[] offsets, TagDto[] entries) {
+        float[] weights = new float[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            float weight = 0;
+            for (int entry = offsets[i]; entry < offsets[i + 1]; entry++) {
+                weight = Math.max(weight, entries[entry].getWeight());
+            }
+            weights[i] = weight;
+        }
+        return weights;
+    }
+
+    static String key(String tag) {
+        return tag.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,8 @@
+package com.sradutataru.search.catalog.service.service;
+
+/**
+ * Published by {@link TagDictionaryService} whenever the content of the {@code semantic-tags} index changed
+ * and a new dictionary generation was loaded.
+ */
+public record TagDictionaryRefreshedEvent(long generation, int size) {
+}
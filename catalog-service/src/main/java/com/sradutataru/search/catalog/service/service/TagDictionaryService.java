@@ -0,0 +1,133 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Keeps an in-memory copy of the {@code semantic-tags} index so tag recognition does not need a
+ * round trip per query. The dictionary is swapped atomically and only gets a new generation when
+ * the index content actually changed, in which case a {@link TagDictionaryRefreshedEvent} is published.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TagDictionaryService {
+
+    private static final String TAGS_INDEX = "semantic-tags";
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private final RestHighLevelClient client;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<TagDictionary> dictionary = new AtomicReference<>(TagDictionary.empty());
+
+    @Value("${catalog.semantic.tag-dictionary.scroll-size:1000}")
+    private int scrollSize;
+
+    public TagDictionary current() {
+        return dictionary.get();
+    }
+
+    public boolean isLoaded() {
+        return dictionary.get().getGeneration() > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.semantic.tag-dictionary.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh tag dictionary, keeping generation {}: {}", current().getGeneration(), e.getMessage());
+        }
+    }
+
+    /**
+     * The indexer moves the tag alias together with the catalog, so the dictionary follows the live alias right away
+     * instead of on the next scheduled refresh. Runs off the scheduler thread that published the event.
+     */
+    @Async
+    @EventListener
+    public void onLiveIndexChanged(LiveIndexChangedEvent event) {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh tag dictionary after the live alias moved to {}, keeping generation {}: {}",
+                    event.currentIndices(), current().getGeneration(), e.getMessage());
+        }
+    }
+
+    public synchronized TagDictionary refresh() {
+        TagDictionary current = dictionary.get();
+        List<TagDto> tags = loadTags();
+        if (current.getGeneration() > 0 && current.hasSameTags(tags)) {
+            return current;
+        }
+        TagDictionary loaded = TagDictionary.build(tags, current.getGeneration() + 1);
+        dictionary.set(loaded);
+        log.info("Loaded tag dictionary generation {} with {} tags", loaded.getGeneration(), loaded.size());
+        eventPublisher.publishEvent(new TagDictionaryRefreshedEvent(loaded.getGeneration(), loaded.size()));
+        return loaded;
+    }
+
+    private List<TagDto> loadTags() {
+        List<TagDto> tags = new ArrayList<>();
+        SearchRequest request = new SearchRequest(TAGS_INDEX)
+                .scroll(SCROLL_KEEP_ALIVE)
+                .source(new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()).size(scrollSize));
+        String scrollId = null;
+        try {
+            SearchResponse response = client.search(request, DEFAULT);
+            scrollId = response.getScrollId();
+            while (response.getHits().getHits().length > 0) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    tags.add(objectMapper.readValue(hit.getSourceAsString(), TagDto.class));
+                }
+                response = client.scroll(new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), DEFAULT);
+                scrollId = response.getScrollId();
+            }
+            return tags;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load semantic tags", e);
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(scrollId);
+        try {
+            client.clearScroll(clearScrollRequest, DEFAULT);
+        } catch (IOException e) {
+            log.warn("Failed to clear tag dictionary scroll: {}", e.getMessage());
+        }
+    }
+}
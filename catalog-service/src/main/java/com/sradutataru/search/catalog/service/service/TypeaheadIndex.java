@@ -0,0 +1,244 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable typeahead snapshot of the catalog: the distinct product names, each reachable through the tokens
+ * of the product names and search keywords.
+ * <p>
+ * Suggestion ids are assigned in ranking order (rating, then stock, then name), so lower ids always rank
+ * first and ordering is deterministic. The tokens form a compressed trie in which every node keeps the
+ * {@code topK} lowest ids found below it, which answers a single-token prefix with one walk. For multi-token
+ * queries every token but the last must match a whole token and the last one is a prefix, like the
+ * Elasticsearch query this replaces; they are answered by scanning the shortest posting list of the complete
+ * tokens in id order.
+ */
+public final class TypeaheadIndex {
+
+    private static final Comparator<ProductDto> RANKING = Comparator
+            .comparing(ProductDto::getRating, Comparator.nullsLast(Comparator.<Float>reverseOrder()))
+            .thenComparing(ProductDto::getStock, Comparator.nullsLast(Comparator.<Integer>reverseOrder()))
+            .thenComparing((ProductDto product) -> product.getName().trim().toLowerCase(Locale.ROOT))
+            .thenComparing((ProductDto product) -> product.getName().trim())
+            .thenComparing(ProductDto::getProductId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final String[] suggestions;
+    private final String[][] suggestionTokens;
+    private final String[] tokens;
+    private final int[][] postings;
+    private final int topK;
+    private final Node root;
+
+    private TypeaheadIndex(String[] suggestions, String[][] suggestionTokens, String[] tokens, int[][] postings, int topK) {
+        this.suggestions = suggestions;
+        this.suggestionTokens = suggestionTokens;
+        this.tokens = tokens;
+        this.postings = postings;
+        this.topK = topK;
+        this.root = tokens.length == 0 ? null : buildNode(0, tokens.length);
+    }
+
+    /**
+     * @param topK number of suggestions kept per trie node, the most a single-token prefix can return
+     */
+    public static TypeaheadIndex build(Collection<ProductDto> products, int topK) {
+        List<ProductDto> ranked = products.stream()
+                .filter(product -> product.getName() != null && !product.getName().isBlank())
+                .sorted(RANKING)
+                .toList();
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<Set<String>> tokenSets = new ArrayList<>();
+        for (ProductDto product : ranked) {
+            String name = product.getName().trim();
+            int id = ids.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> {
+                names.add(name);
+                tokenSets.add(new TreeSet<>());
+                return names.size() - 1;
+            });
+            tokenSets.get(id).addAll(tokenize(name));
+            tokenSets.get(id).addAll(tokenize(product.getSearchKeywords()));
+        }
+        Map<String, List<Integer>> postingLists = new TreeMap<>();
+        String[][] suggestionTokens = new String[names.size()][];
+        for (int id = 0; id < names.size(); id++) {
+            suggestionTokens[id] = tokenSets.get(id).toArray(String[]::new);
+            for (String token : suggestionTokens[id]) {
+                postingLists.computeIfAbsent(token, key -> new ArrayList<>()).add(id);
+            }
+        }
+        String[] tokens = postingLists.keySet().toArray(String[]::new);
+        int[][] postings = new int[tokens.length][];
+        for (int i = 0; i < tokens.length; i++) {
+            postings[i] = postingLists.get(tokens[i]).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new TypeaheadIndex(names.toArray(String[]::new), suggestionTokens, tokens, postings, topK);
+    }
+
+    /**
+     * Returns at most {@code limit} product names completing {@code query}, best ranked first. Single-token
+     * queries return at most {@code topK} names.
+     */
+    public List<String> suggest(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String prefix = queryTokens.get(queryTokens.size() - 1);
+        Node node = find(prefix);
+        if (node == null) {
+            return List.of();
+        }
+        if (queryTokens.size() == 1) {
+            List<String> result = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int i = 0; i < node.top.length && result.size() < limit; i++) {
+                result.add(suggestions[node.top[i]]);
+            }
+            return result;
+        }
+        List<String> complete = queryTokens.subList(0, queryTokens.size() - 1).stream().distinct().toList();
+        int[] candidates = null;
+        for (String token : complete) {
+            int index = Arrays.binarySearch(tokens, token);
+            if (index < 0) {
+                return List.of();
+            }
+            if (candidates == null || postings[index].length < candidates.length) {
+                candidates = postings[index];
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (int id : candidates) {
+            if (containsAll(suggestionTokens[id], complete) && hasPrefix(suggestionTokens[id], prefix)) {
+                result.add(suggestions[id]);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return suggestions.length;
+    }
+
+    public int tokenCount() {
+        return tokens.length;
+    }
+
+    /**
+     * Lowercased letter and digit runs, which is how the standard analyzer splits names and keywords.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        while (node != null) {
+            String path = tokens[node.token];
+            int end = Math.min(prefix.length(), node.depth);
+            if (!prefix.regionMatches(0, path, 0, end)) {
+                return null;
+            }
+            if (prefix.length() <= node.depth) {
+                return node;
+            }
+            node = node.child(prefix.charAt(node.depth));
+        }
+        return null;
+    }
+
+    /**
+     * Builds the node shared by the sorted tokens {@code [from, to)}, which spans their longest common prefix.
+     */
+    private Node buildNode(int from, int to) {
+        int depth = commonPrefix(tokens[from], tokens[to - 1]);
+        List<int[]> tops = new ArrayList<>();
+        int next = from;
+        if (tokens[from].length() == depth) {
+            tops.add(postings[from]);
+            next++;
+        }
+        List<Character> labels = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        while (next < to) {
+            char label = tokens[next].charAt(depth);
+            int end = next;
+            while (end < to && tokens[end].charAt(depth) == label) {
+                end++;
+            }
+            Node child = buildNode(next, end);
+            labels.add(label);
+            children.add(child);
+            tops.add(child.top);
+            next = end;
+        }
+        char[] childLabels = new char[labels.size()];
+        for (int i = 0; i < childLabels.length; i++) {
+            childLabels[i] = labels.get(i);
+        }
+        int[] top = tops.stream()
+                .flatMapToInt(ids -> Arrays.stream(ids).limit(topK))
+                .sorted()
+                .distinct()
+                .limit(topK)
+                .toArray();
+        return new Node(from, depth, childLabels, children.toArray(Node[]::new), top);
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean containsAll(String[] sortedTokens, List<String> required) {
+        for (String token : required) {
+            if (Arrays.binarySearch(sortedTokens, token) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasPrefix(String[] sortedTokens, String prefix) {
+        int index = Arrays.binarySearch(sortedTokens, prefix);
+        int first = index < 0 ? -index - 1 : index;
+        return first < sortedTokens.length && sortedTokens[first].startsWith(prefix);
+    }
+
+    /**
+     * @param token index of a token below this node, whose first {@code depth} characters are the node's path
+     * @param top   lowest suggestion ids below this node, ascending
+     */
+    private record Node(int token, int depth, char[] labels, Node[] children, int[] top) {
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Answers typeahead from an in-memory {@link TypeaheadIndex} of the live index. The index is rebuilt when
+ * the live alias moves; until it is loaded, or after a failed rebuild, {@link #suggest} returns null and
+ * typeahead is served by Elasticsearch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TypeaheadService {
+
+    private static final String INDEX = "catalog-index_live";
+    private static final String[] SOURCE_FIELDS = {"product_id", "name", "search_keywords", "rating", "stock"};
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+
+    private final RestHighLevelClient client;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<TypeaheadIndex> index = new AtomicReference<>();
+
+    @Value("${catalog.typeahead.in-memory.enabled:false}")
+    private boolean enabled;
+
+    @Value("${catalog.typeahead.max-suggestions:10}")
+    private int maxSuggestions;
+
+    @Value("${catalog.typeahead.in-memory.scroll-size:1000}")
+    private int scrollSize;
+
+    /**
+     * Returns the suggestions for {@code query}, or null when the in-memory index is disabled or not loaded.
+     */
+    public List<String> suggest(String query) {
+        TypeaheadIndex current = index.get();
+        if (!enabled || current == null) {
+            return null;
+        }
+        return current.suggest(query, maxSuggestions);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.typeahead.in-memory.retry-interval-ms:30000}")
+    public void loadIfMissing() {
+        if (!enabled || index.get() != null) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load typeahead index, serving typeahead from Elasticsearch: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds off the scheduler thread that published the event, so the scroll over the catalog does not hold up
+     * alias polling and the other scheduled refreshes.
+     */
+    @Async
+    @EventListener
+    public void onLiveIndexChanged(LiveIndexChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            index.set(null);
+            log.warn("Failed to rebuild typeahead index for {}, serving typeahead from Elasticsearch: {}",
+                    event.currentIndices(), e.getMessage());
+        }
+    }
+
+    public synchronized TypeaheadIndex rebuild() {
+        long start = System.currentTimeMillis();
+        TypeaheadIndex built = TypeaheadIndex.build(loadProducts(), maxSuggestions);
+        index.set(built);
+        log.info("Built typeahead index with {} suggestions and {} tokens in {} ms", built.size(), built.tokenCount(),
+                System.currentTimeMillis() - start);
+        return built;
+    }
+
+    private List<ProductDto> loadProducts() {
+        List<ProductDto> products = new ArrayList<>();
+        SearchRequest request = new SearchRequest(INDEX)
+                .scroll(SCROLL_KEEP_ALIVE)
+                .source(new SearchSourceBuilder()
+                        .query(QueryBuilders.matchAllQuery())
+                        .fetchSource(SOURCE_FIELDS, null)
+                        .sort("_doc", SortOrder.ASC)
+                        .size(scrollSize));
+        String scrollId = null;
+        try {
+            SearchResponse response = client.search(request, DEFAULT);
+            scrollId = response.getScrollId();
+            while (response.getHits().getHits().length > 0) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    products.add(objectMapper.readValue(hit.getSourceAsString(), ProductDto.class));
+                }
+                response = client.scroll(new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), DEFAULT);
+                scrollId = response.getScrollId();
+            }
+            return products;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load products for typeahead", e);
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(scrollId);
+        try {
+            client.clearScroll(clearScrollRequest, DEFAULT);
+        } catch (IOException e) {
+            log.warn("Failed to clear typeahead scroll: {}", e.getMessage());
+        }
+    }
+}
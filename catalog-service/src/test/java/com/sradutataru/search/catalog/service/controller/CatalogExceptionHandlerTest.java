@@ -11,6 +11,7 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -58,6 +59,21 @@ class CatalogExceptionHandlerTest {
         assertEquals("/api/v1/products", responseBody.get("path"));
     }
 
+    @Test
+    void testHandleResponseStatusException() {
+        ResponseStatusException exception = new ResponseStatusException(HttpStatus.NOT_FOUND, "Semantic search debug mode is disabled");
+        WebRequest request = mock(WebRequest.class);
+        when(request.getDescription(false)).thenReturn("/api/v1/products/semantic-search/debug");
+
+        ResponseEntity<Object> response = catalogExceptionHandler.handleResponseStatusException(exception, request);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
+        assertEquals("Semantic search debug mode is disabled", responseBody.get("message"));
+        assertEquals(404, responseBody.get("status"));
+        assertEquals("Not Found", responseBody.get("error"));
+    }
+
     @Test
     void testHandleMethodArgumentNotValid() {
         var fieldError = mock(FieldError.class);
@@ -1,6 +1,10 @@
 package com.sradutataru.search.catalog.service.controller;
 
+import com.sradutataru.search.catalog.service.dto.BatchSearchItem;
+import com.sradutataru.search.catalog.service.dto.BatchSearchResult;
 import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import com.sradutataru.search.catalog.service.dto.SemanticDebugResponse;
+import com.sradutataru.search.catalog.service.service.ExportService;
 import com.sradutataru.search.catalog.service.service.ProductService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,16 +13,24 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,19 +39,22 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private ProductController productController;
 
     @Test
     void testKeywordSearch_ValidInput() {
         ProductResponse mockResponse = new ProductResponse();
-        when(productService.keywordSearch(anyString(), anyInt(), anyInt(), anyMap()))
-                .thenReturn(mockResponse);
+        when(productService.keywordSearchAsync(anyString(), anyInt(), anyInt(), any(), any(), anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
 
         Map<String, String> params = new HashMap<>();
         params.put("attributes.color", "black");
 
-        ResponseEntity<ProductResponse> response = productController.keywordSearch("wireless", 10, 1, params);
+        ResponseEntity<ProductResponse> response = productController.keywordSearch("wireless", 10, 1, null, null, params).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockResponse, response.getBody());
@@ -48,10 +63,10 @@ class ProductControllerTest {
     @Test
     void testKeywordSearch_NoAttributes() {
         ProductResponse mockResponse = new ProductResponse();
-        when(productService.keywordSearch(anyString(), anyInt(), anyInt(), anyMap()))
-                .thenReturn(mockResponse);
+        when(productService.keywordSearchAsync(anyString(), anyInt(), anyInt(), any(), any(), anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        ResponseEntity<ProductResponse> response = productController.keywordSearch("wireless", 10, 1, new HashMap<>());
+        ResponseEntity<ProductResponse> response = productController.keywordSearch("wireless", 10, 1, null, null, new HashMap<>()).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockResponse, response.getBody());
@@ -60,13 +75,25 @@ class ProductControllerTest {
     @Test
     void testSemanticSearch_ValidInput() {
         ProductResponse mockResponse = new ProductResponse();
-        when(productService.semanticSearchV2(anyString(), anyInt(), anyInt(), anyMap()))
-                .thenReturn(mockResponse);
+        when(productService.semanticSearchV2Async(anyString(), anyInt(), anyInt(), any(), any(), anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
 
         Map<String, String> params = new HashMap<>();
         params.put("attributes.color", "black");
 
-        ResponseEntity<ProductResponse> response = productController.semanticSearch("wireless", 10, 1, params);
+        ResponseEntity<ProductResponse> response = productController.semanticSearch("wireless", 10, 1, null, null, params).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockResponse, response.getBody());
+    }
+
+    @Test
+    void testSemanticSearchDebug_ValidInput() {
+        SemanticDebugResponse mockResponse = new SemanticDebugResponse();
+        when(productService.semanticSearchDebug(anyString(), anyInt(), anyInt(), anyMap()))
+                .thenReturn(mockResponse);
+
+        ResponseEntity<SemanticDebugResponse> response = productController.semanticSearchDebug("wireless", 10, 1, new HashMap<>());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockResponse, response.getBody());
@@ -75,10 +102,10 @@ class ProductControllerTest {
     @Test
     void testTypeaheadSearch_ValidInput() {
         List<String> mockSuggestions = Arrays.asList("iPhone 13", "iPhone 13 Pro", "iPhone 14");
-        when(productService.typeaheadSearch(anyString()))
-                .thenReturn(mockSuggestions);
+        when(productService.typeaheadSearchAsync(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(mockSuggestions));
 
-        ResponseEntity<List<String>> response = productController.typeaheadSearch("iph");
+        ResponseEntity<List<String>> response = productController.typeaheadSearch("iph", null, null).join();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockSuggestions, response.getBody());
@@ -99,4 +126,35 @@ class ProductControllerTest {
         assertEquals("black", result.get("attributes.color"));
         assertEquals("large", result.get("attributes.size"));
     }
+
+    @Test
+    void testExportProducts_StreamsNdjson() throws IOException {
+        when(exportService.exportProducts(eq("wireless"), eq("listing"), eq(Map.of("attributes.color", "black")), any(), any())).thenAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(3).accept(1);
+            invocation.<OutputStream>getArgument(4).write("{\"product_id\":\"1\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        productController.exportProducts("wireless", "listing", Map.of("q", "wireless", "attributes.color", "black"), response);
+
+        assertEquals("application/x-ndjson", response.getContentType());
+        assertEquals("1", response.getHeader("X-Total-Count"));
+        assertEquals("{\"product_id\":\"1\"}\n", response.getContentAsString());
+    }
+
+    @Test
+    void testBatchSearch_KeepsOnlyAttributeFilters() {
+        BatchSearchItem keyword = new BatchSearchItem(BatchSearchItem.Type.KEYWORD, "wireless", 10, 1, null, "listing",
+                new HashMap<>(Map.of("attributes.color", "black", "q", "ignored")), null, null);
+        BatchSearchItem typeahead = new BatchSearchItem(BatchSearchItem.Type.TYPEAHEAD, "iph", 10, 1, null, null, null, null, "Apple");
+        List<BatchSearchResult> results = List.of(BatchSearchResult.of(new ProductResponse()), BatchSearchResult.of(List.of("iPhone 13")));
+        when(productService.batchSearch(List.of(keyword, typeahead))).thenReturn(CompletableFuture.completedFuture(results));
+
+        ResponseEntity<List<BatchSearchResult>> response = productController.batchSearch(List.of(keyword, typeahead)).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(results, response.getBody());
+        assertEquals(Map.of("attributes.color", "black"), keyword.getAttributes());
+    }
 }
@@ -0,0 +1,70 @@
+package com.sradutataru.search.catalog.service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RawProductDtoTest {
+
+    private static final String SOURCE = "{\"name\":\"Café \\\"grinder\\\"\"}";
+    private static final String QUOTED = "{\\\"name\\\":\\\"Café \\\\\\\"grinder\\\\\\\"\\\"}";
+
+    private final RawProductDto.RawJson raw = new RawProductDto.RawJson(SOURCE.getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void testQuoted_EscapesDecodedSource() throws IOException {
+        byte[] quotedBytes = QUOTED.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(QUOTED.toCharArray(), raw.asQuotedChars());
+        assertArrayEquals(quotedBytes, raw.asQuotedUTF8());
+
+        byte[] buffer = new byte[64];
+        assertEquals(quotedBytes.length, raw.appendQuotedUTF8(buffer, 1));
+        assertArrayEquals(quotedBytes, Arrays.copyOfRange(buffer, 1, 1 + quotedBytes.length));
+
+        char[] chars = new char[64];
+        assertEquals(QUOTED.length(), raw.appendQuoted(chars, 0));
+        assertEquals(QUOTED, new String(chars, 0, QUOTED.length()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(quotedBytes.length, raw.writeQuotedUTF8(out));
+        assertArrayEquals(quotedBytes, out.toByteArray());
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        assertEquals(quotedBytes.length, raw.putQuotedUTF8(byteBuffer));
+        assertArrayEquals(quotedBytes, Arrays.copyOf(byteBuffer.array(), byteBuffer.position()));
+    }
+
+    @Test
+    void testQuoted_ReportsBufferTooSmall() {
+        assertEquals(-1, raw.appendQuotedUTF8(new byte[4], 0));
+        assertEquals(-1, raw.appendQuoted(new char[4], 0));
+    }
+
+    @Test
+    void testWriteString_QuotesSourceInBothGenerators() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String expected = "\"" + QUOTED + "\"";
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(bytes)) {
+            generator.writeString(raw);
+        }
+        assertEquals(expected, bytes.toString(StandardCharsets.UTF_8));
+
+        StringWriter chars = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(chars)) {
+            generator.writeString(raw);
+        }
+        assertEquals(expected, chars.toString());
+    }
+}
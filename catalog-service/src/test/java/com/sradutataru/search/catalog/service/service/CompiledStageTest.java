@@ -0,0 +1,49 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.SemanticStage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledStageTest {
+
+    @Test
+    void testBoostForResolvesStaticThenDynamicFields() {
+        CompiledStage stage = new CompiledStage(stage(Map.of("name.concept", 25f, "attributes.color", 40f), Map.of("attributes.*", 10f)));
+
+        assertEquals(25f, stage.boostFor("name.concept"));
+        assertEquals(40f, stage.boostFor("attributes.color"));
+        assertEquals(10f, stage.boostFor("attributes.storage"));
+        assertEquals(-1f, stage.boostFor("brand_name.concept"));
+    }
+
+    @Test
+    void testBoostForIsStableBeyondMemoizationBound() {
+        CompiledStage stage = new CompiledStage(stage(Map.of("name.concept", 25f), Map.of("attributes.*", 10f)));
+
+        for (int i = 0; i < CompiledStage.MAX_RESOLVED_FIELDS + 10; i++) {
+            assertEquals(10f, stage.boostFor("attributes.field" + i));
+        }
+        assertEquals(25f, stage.boostFor("name.concept"));
+    }
+
+    @Test
+    void testStageWithoutFieldsIsRejected() {
+        SemanticStage invalid = new SemanticStage();
+        invalid.setName("broken");
+
+        assertThrows(IllegalArgumentException.class, () -> new CompiledStage(invalid));
+    }
+
+    private static SemanticStage stage(Map<String, Float> fields, Map<String, Float> dynamicFields) {
+        SemanticStage stage = new SemanticStage();
+        stage.setName("test");
+        stage.setFields(fields);
+        stage.setDynamicFields(dynamicFields);
+        stage.setMinMatchPercent(1.0f);
+        return stage;
+    }
+}
@@ -0,0 +1,106 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock
+    private RestHighLevelClient client;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(client, new ObjectMapper());
+        ReflectionTestUtils.setField(exportService, "batchSize", 2);
+        ReflectionTestUtils.setField(exportService, "scrollKeepAliveMs", 60000L);
+    }
+
+    @Test
+    void testExportProducts_WritesEveryScrollPageAsNdjson() throws IOException {
+        when(client.search(any(SearchRequest.class), any(RequestOptions.class)))
+                .thenReturn(page("scroll-1", 3, "1", "2"));
+        when(client.scroll(any(SearchScrollRequest.class), any(RequestOptions.class)))
+                .thenReturn(page("scroll-2", 3, "3"), page("scroll-3", 3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicLong totalHits = new AtomicLong();
+
+        long written = exportService.exportProducts("earbuds", null, Map.of(), totalHits::set, out);
+
+        assertEquals(3, written);
+        assertEquals(3, totalHits.get());
+        assertEquals("{\"product_id\":\"1\",\"name\":\"Product 1\"}\n"
+                + "{\"product_id\":\"2\",\"name\":\"Product 2\"}\n"
+                + "{\"product_id\":\"3\",\"name\":\"Product 3\"}\n", out.toString(StandardCharsets.UTF_8));
+        assertEquals(List.of("scroll-3"), clearedScrollIds());
+    }
+
+    @Test
+    void testExportProducts_ClearsScrollWhenClientDisconnects() throws IOException {
+        when(client.search(any(SearchRequest.class), any(RequestOptions.class)))
+                .thenReturn(page("scroll-1", 3, "1", "2"));
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> exportService.exportProducts("earbuds", null, Map.of(), total -> { }, disconnected));
+
+        assertEquals(List.of("scroll-1"), clearedScrollIds());
+    }
+
+    private List<String> clearedScrollIds() throws IOException {
+        ArgumentCaptor<ClearScrollRequest> request = ArgumentCaptor.forClass(ClearScrollRequest.class);
+        verify(client).clearScroll(request.capture(), any(RequestOptions.class));
+        return request.getValue().getScrollIds();
+    }
+
+    private static SearchResponse page(String scrollId, long total, String... ids) {
+        SearchHit[] hits = new SearchHit[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            String source = "{\"product_id\":\"" + ids[i] + "\",\"name\":\"Product " + ids[i] + "\"}";
+            hits[i] = new SearchHit(i, ids[i], new Text("_doc"), Map.of())
+                    .sourceRef(new BytesArray(source.getBytes(StandardCharsets.UTF_8)));
+        }
+        SearchHits searchHits = new SearchHits(hits, new TotalHits(total, TotalHits.Relation.EQUAL_TO), 1f);
+        return new SearchResponse(new InternalSearchResponse(searchHits, null, null, null, false, null, 1),
+                scrollId, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+}
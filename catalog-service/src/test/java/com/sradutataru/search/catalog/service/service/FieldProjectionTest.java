@@ -0,0 +1,50 @@
+package com.sradutataru.search.catalog.service.service;
+
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldProjectionTest {
+
+    @Test
+    void testParse_MissingFieldsReturnFull() {
+        assertSame(FieldProjection.FULL, FieldProjection.parse(null));
+        assertSame(FieldProjection.FULL, FieldProjection.parse(" "));
+        assertNull(FieldProjection.FULL.apply(new SearchSourceBuilder()).fetchSource());
+    }
+
+    @Test
+    void testParse_PresetsIgnoreCase() {
+        assertSame(FieldProjection.LISTING, FieldProjection.parse("Listing"));
+        assertSame(FieldProjection.FULL, FieldProjection.parse("FULL"));
+    }
+
+    @Test
+    void testParse_FieldListsCanonicalWithProductId() {
+        FieldProjection projection = FieldProjection.parse("price, Name,,attributes.color,price");
+
+        assertEquals(List.of("attributes.color", "name", "price", "product_id"), projection.includes());
+        assertEquals(projection, FieldProjection.parse("name,attributes.color,price"));
+        assertEquals("attributes.color,name,price,product_id", projection.key());
+    }
+
+    @Test
+    void testApply_SetsSourceFiltering() {
+        SearchSourceBuilder source = FieldProjection.LISTING.apply(new SearchSourceBuilder());
+
+        assertArrayEquals(new String[]{"product_id", "name", "brand_name", "category_name", "price", "rating"},
+                source.fetchSource().includes());
+    }
+
+    @Test
+    void testParse_UnknownFieldRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FieldProjection.parse("name,margin"));
+    }
+}
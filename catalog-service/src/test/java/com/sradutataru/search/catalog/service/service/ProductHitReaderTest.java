@@ -0,0 +1,65 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import com.sradutataru.search.catalog.service.dto.RawProductDto;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class ProductHitReaderTest {
+
+    private static final String SOURCE = "{\"product_id\":\"42\",\"name\":\"Galaxy S23 Ultra\",\"price\":1199.99,\"attributes\":{\"color\":\"phantom black\"}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProductHitReader reader = new ProductHitReader(objectMapper);
+
+    @Test
+    void testRead_BindsProductDtosByDefault() throws IOException {
+        List<ProductDto> products = reader.read(new SearchHit[]{hit(SOURCE)});
+
+        assertFalse(products.get(0) instanceof RawProductDto);
+        assertEquals("42", products.get(0).getProductId());
+        assertEquals("phantom black", products.get(0).getAttributes().get("color"));
+    }
+
+    @Test
+    void testRead_KeepsSourceBytesWhenPassThroughEnabled() throws IOException {
+        ReflectionTestUtils.setField(reader, "sourcePassThrough", true);
+
+        List<ProductDto> products = reader.read(new SearchHit[]{hit(SOURCE)});
+
+        RawProductDto product = assertInstanceOf(RawProductDto.class, products.get(0));
+        assertArrayEquals(SOURCE.getBytes(StandardCharsets.UTF_8), product.getSource());
+    }
+
+    @Test
+    void testSerialize_WritesSourceVerbatim() throws IOException {
+        ReflectionTestUtils.setField(reader, "sourcePassThrough", true);
+        String second = "{\"product_id\":\"7\",\"name\":\"Café grinder\"}";
+        ProductResponse response = new ProductResponse("galaxy", 2, Map.of(),
+                reader.read(new SearchHit[]{hit(SOURCE), hit(second)}), 10, 1, null, null);
+
+        String expected = "{\"q\":\"galaxy\",\"numFound\":2,\"attributes\":{},\"products\":[" + SOURCE + "," + second
+                + "],\"count\":10,\"page\":1}";
+        assertEquals(expected, new String(objectMapper.writeValueAsBytes(response), StandardCharsets.UTF_8));
+        assertEquals(expected, objectMapper.writeValueAsString(response));
+    }
+
+    private static SearchHit hit(String source) {
+        return new SearchHit(1, "1", new Text("_doc"), Map.of()).sourceRef(new BytesArray(source.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,92 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a page of product hits into the serialized search response, binding every
+ * {@code _source} to a {@link com.sradutataru.search.catalog.service.dto.ProductDto} against passing the
+ * source bytes through. Run through {@link #main}, which attaches the GC profiler so
+ * {@code gc.alloc.rate.norm} reports the bytes allocated per response next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductResponseSerializationBenchmark {
+
+    @Param({"10", "50", "100"})
+    private int hits;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ProductHitReader bindingReader;
+    private ProductHitReader passThroughReader;
+    private SearchHit[] page;
+
+    @Setup
+    public void setUp() {
+        bindingReader = new ProductHitReader(objectMapper);
+        passThroughReader = new ProductHitReader(objectMapper);
+        ReflectionTestUtils.setField(passThroughReader, "sourcePassThrough", true);
+        page = new SearchHit[hits];
+        for (int i = 0; i < hits; i++) {
+            String source = "{\"product_id\":\"" + i + "\",\"name\":\"Samsung Galaxy S23 Ultra " + i + "\","
+                    + "\"brand_name\":\"Samsung\",\"category_name\":\"Smartphones\",\"price\":1199.99,"
+                    + "\"description\":\"Flagship smartphone with a 200MP camera, S Pen support and a 5000mAh battery.\","
+                    + "\"search_keywords\":\"Samsung Galaxy S23 Ultra Samsung Electronics Smartphones\","
+                    + "\"attributes\":{\"color\":\"phantom black\",\"storage\":\"512GB\",\"battery\":\"5000mAh\"},"
+                    + "\"release_date\":\"2023-02-17\",\"rating\":4.7,\"stock\":150,\"tags\":[\"new\",\"popular\"]}";
+            page[i] = new SearchHit(i, String.valueOf(i), new Text("_doc"), Map.of())
+                    .sourceRef(new BytesArray(source.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Benchmark
+    public void bindToProductDto() throws IOException {
+        write(bindingReader);
+    }
+
+    @Benchmark
+    public void passThroughSource() throws IOException {
+        write(passThroughReader);
+    }
+
+    private void write(ProductHitReader reader) throws IOException {
+        ProductResponse response = new ProductResponse("galaxy", 1000, Map.of(), reader.read(page), hits, 1, null, null);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductResponseSerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
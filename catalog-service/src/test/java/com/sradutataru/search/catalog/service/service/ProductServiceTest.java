@@ -0,0 +1,245 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.config.SearchCacheProperties;
+import com.sradutataru.search.catalog.service.dto.BatchSearchItem;
+import com.sradutataru.search.catalog.service.dto.BatchSearchResult;
+import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceTest {
+
+    @Mock
+    private RestHighLevelClient client;
+
+    @Mock
+    private SemanticService semanticService;
+
+    @Mock
+    private TypeaheadService typeaheadService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final List<MultiSearchRequest> msearches = new ArrayList<>();
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        executor.initialize();
+        SearchResponseCache cache = new SearchResponseCache(new SearchCacheProperties(), meterRegistry);
+        cache.init();
+        RequestCoalescer coalescer = new RequestCoalescer(meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        coalescer.init();
+        productService = new ProductService(client, objectMapper, new ProductHitReader(objectMapper), semanticService,
+                cache, coalescer, typeaheadService, executor);
+        ReflectionTestUtils.setField(productService, "batchMaxSearches", 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testBatchSearch_MixedBatchSendsOneMsearchAndKeepsItemOrder() throws Exception {
+        respondWith(request -> items(request, i -> new MultiSearchResponse.Item(response("Earbuds Pro"), null)));
+        when(typeaheadService.suggest("ear")).thenReturn(null);
+        ProductResponse semantic = new ProductResponse("headphones", 2, Map.of(), List.of(), 10, 1, "exact", null);
+        when(semanticService.semanticSearchAsync(eq("headphones"), eq(10), eq(1), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(semantic));
+
+        List<BatchSearchResult> results = productService.batchSearch(List.of(
+                item(BatchSearchItem.Type.KEYWORD, "earbuds"),
+                item(BatchSearchItem.Type.SEMANTIC, "headphones"),
+                item(BatchSearchItem.Type.TYPEAHEAD, "ear"))).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, msearches.size());
+        assertEquals(2, msearches.get(0).requests().size());
+        assertEquals("earbuds", results.get(0).getResponse().getQ());
+        assertEquals("Earbuds Pro", results.get(0).getResponse().getProducts().get(0).getName());
+        assertEquals("exact", results.get(1).getResponse().getStage());
+        assertEquals(List.of("Earbuds Pro"), results.get(2).getSuggestions());
+    }
+
+    @Test
+    void testBatchSearch_FailedMsearchItemOnlyFailsItsSearch() throws Exception {
+        respondWith(request -> items(request, i -> i == 1
+                ? new MultiSearchResponse.Item(null, new ElasticsearchException("search_phase_execution_exception"))
+                : new MultiSearchResponse.Item(response("Earbuds Pro"), null)));
+
+        List<BatchSearchResult> results = productService.batchSearch(List.of(
+                item(BatchSearchItem.Type.KEYWORD, "earbuds"),
+                item(BatchSearchItem.Type.KEYWORD, "headphones"))).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, results.get(0).getResponse().getNumFound());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(1).getResponse());
+        assertEquals("Unexpected error occurred", results.get(1).getError());
+    }
+
+    @Test
+    void testBatchSearch_DuplicateAndCachedSearchesSkipTheMsearch() throws Exception {
+        respondWith(request -> items(request, i -> new MultiSearchResponse.Item(response("Earbuds Pro"), null)));
+
+        List<BatchSearchResult> first = productService.batchSearch(List.of(
+                item(BatchSearchItem.Type.KEYWORD, "earbuds"),
+                item(BatchSearchItem.Type.KEYWORD, "Earbuds"))).get(5, TimeUnit.SECONDS);
+        List<BatchSearchResult> second = productService.batchSearch(List.of(
+                item(BatchSearchItem.Type.KEYWORD, "earbuds"))).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, msearches.size());
+        assertEquals(1, msearches.get(0).requests().size());
+        assertEquals("earbuds", first.get(0).getResponse().getQ());
+        assertEquals("Earbuds", first.get(1).getResponse().getQ());
+        assertSame(first.get(0).getResponse().getProducts(), first.get(1).getResponse().getProducts());
+        assertEquals(1, second.get(0).getResponse().getNumFound());
+    }
+
+    @Test
+    void testBatchSearch_NullCountIsAnItemError() throws Exception {
+        BatchSearchItem item = item(BatchSearchItem.Type.KEYWORD, "earbuds");
+        item.setCount(null);
+
+        List<BatchSearchResult> results = productService.batchSearch(List.of(item)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(results.get(0).getError().contains("positive count and page"));
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void testBatchSearch_CompletionOverFetchesAndKeepsDistinctNames() throws Exception {
+        ReflectionTestUtils.setField(productService, "suggestIndexEnabled", true);
+        when(typeaheadService.suggest("pho")).thenReturn(null);
+        respondWith(request -> items(request, i -> new MultiSearchResponse.Item(completion(24), null)));
+
+        List<BatchSearchResult> results = productService.batchSearch(List.of(item(BatchSearchItem.Type.TYPEAHEAD, "pho")))
+                .get(5, TimeUnit.SECONDS);
+
+        CompletionSuggestionBuilder completion = (CompletionSuggestionBuilder) msearches.get(0).requests().get(0).source()
+                .suggest().getSuggestions().get("products");
+        assertEquals(30, completion.size());
+        assertEquals(List.of("Phone 0", "Phone 1", "Phone 2", "Phone 3", "Phone 4", "Phone 5", "Phone 6", "Phone 7",
+                "Phone 8", "Phone 9"), results.get(0).getSuggestions());
+    }
+
+    @Test
+    void testForQuery_EchoesCallerQueryOfSharedResponse() {
+        ProductResponse cached = new ProductResponse("IPHONE", 3, Map.of(), List.of(), 10, 1, "exact", null);
+
+        ProductResponse response = ProductService.forQuery(cached, "iPhone");
+
+        assertEquals("iPhone", response.getQ());
+        assertEquals("IPHONE", cached.getQ());
+        assertSame(cached.getProducts(), response.getProducts());
+        assertEquals(3, response.getNumFound());
+        assertEquals("exact", response.getStage());
+    }
+
+    @Test
+    void testForQuery_KeepsMatchingOrMissingResponse() {
+        ProductResponse cached = new ProductResponse("iPhone", 3, Map.of(), List.of(), 10, 1, null, null);
+
+        assertSame(cached, ProductService.forQuery(cached, "iPhone"));
+        assertNull(ProductService.forQuery(null, "iPhone"));
+    }
+
+    private void respondWith(Function<MultiSearchRequest, MultiSearchResponse> response) {
+        doAnswer(invocation -> {
+            MultiSearchRequest request = invocation.getArgument(0);
+            msearches.add(request);
+            ActionListener<MultiSearchResponse> listener = invocation.getArgument(2);
+            listener.onResponse(response.apply(request));
+            return null;
+        }).when(client).msearchAsync(any(MultiSearchRequest.class), any(RequestOptions.class), any());
+    }
+
+    private static MultiSearchResponse items(MultiSearchRequest request, Function<Integer, MultiSearchResponse.Item> item) {
+        MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[request.requests().size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = item.apply(i);
+        }
+        return new MultiSearchResponse(items, 1);
+    }
+
+    private static SearchResponse response(String name) {
+        SearchHit hit = new SearchHit(1, "1", new Text("_doc"), Map.of())
+                .sourceRef(new BytesArray(("{\"product_id\":\"1\",\"name\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8)));
+        SearchHits hits = new SearchHits(new SearchHit[]{hit}, new TotalHits(1, TotalHits.Relation.EQUAL_TO), 1f);
+        return new SearchResponse(new InternalSearchResponse(hits, null, null, null, false, null, 1),
+                null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+
+    /**
+     * Completion response whose options come in pairs of variants sharing a name.
+     */
+    private static SearchResponse completion(int options) {
+        CompletionSuggestion.Entry entry = new CompletionSuggestion.Entry(new Text("pho"), 0, 3);
+        for (int i = 0; i < options; i++) {
+            String name = "Phone " + i / 2;
+            CompletionSuggestion.Entry.Option option = new CompletionSuggestion.Entry.Option(i, new Text("phone"), options - i, Map.of());
+            option.setHit(new SearchHit(i, String.valueOf(i), new Text("_doc"), Map.of())
+                    .sourceRef(new BytesArray(("{\"name\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8))));
+            entry.addOption(option);
+        }
+        CompletionSuggestion suggestion = new CompletionSuggestion("products", options, false);
+        suggestion.addTerm(entry);
+        List<Suggest.Suggestion<? extends Suggest.Suggestion.Entry<? extends Suggest.Suggestion.Entry.Option>>> suggestions = new ArrayList<>();
+        suggestions.add(suggestion);
+        SearchHits hits = new SearchHits(new SearchHit[0], new TotalHits(0, TotalHits.Relation.EQUAL_TO), 0f);
+        return new SearchResponse(new InternalSearchResponse(hits, null, new Suggest(suggestions), null, false, null, 1),
+                null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+
+    private static BatchSearchItem item(BatchSearchItem.Type type, String q) {
+        BatchSearchItem item = new BatchSearchItem();
+        item.setType(type);
+        item.setQ(q);
+        return item;
+    }
+}
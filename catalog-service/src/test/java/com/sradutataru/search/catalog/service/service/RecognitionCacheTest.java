@@ -0,0 +1,112 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class RecognitionCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger recognitions = new AtomicInteger();
+    private final Function<String, List<TagDto>> recogniser = query -> {
+        recognitions.incrementAndGet();
+        return List.of(new TagDto(query, "name", "product", "1", 1f, query, TagDto.MatchType.EXACT));
+    };
+    private RecognitionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecognitionCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(cache, "expireAfterWriteMs", 60000L);
+        cache.init();
+    }
+
+    @Test
+    void testGet_NormalizedQueriesShareEntry() {
+        cache.get("iPhone 13  Pro", 1, recogniser);
+        List<TagDto> tags = cache.get(" iphone 13 pro ", 1, recogniser);
+
+        assertEquals(1, recognitions.get());
+        assertEquals("iPhone 13 Pro", tags.get(0).getTag());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "semantic.recognition").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testGet_RecognisesQueryAsTyped() {
+        List<String> queries = new ArrayList<>();
+        cache.get("  Wireless   EarBuds ", 1, query -> {
+            queries.add(query);
+            return tokenTags(query);
+        });
+
+        assertEquals(List.of("Wireless EarBuds"), queries);
+    }
+
+    @Test
+    void testGet_HitKeepsCallersOriginalTokens() {
+        cache.get("Wireless EarBuds", 1, RecognitionCacheTest::tokenTags);
+        List<TagDto> tags = cache.get("wireless earbuds", 1, RecognitionCacheTest::tokenTags);
+
+        assertEquals(List.of("wireless", "earbuds"), tags.stream().map(TagDto::getOriginalToken).toList());
+        assertEquals(List.of("wireless", "earbuds"), tags.stream().map(TagDto::getTag).toList());
+    }
+
+    @Test
+    void testGetAsync_HitKeepsCallersOriginalTokens() {
+        Function<String, CompletableFuture<List<TagDto>>> asyncRecogniser = query -> CompletableFuture.completedFuture(tokenTags(query));
+        cache.getAsync("wireless earbuds", 1, asyncRecogniser).join();
+        List<TagDto> tags = cache.getAsync("Wireless EARBUDS", 1, asyncRecogniser).join();
+
+        assertEquals(List.of("Wireless", "EARBUDS"), tags.stream().map(TagDto::getOriginalToken).toList());
+    }
+
+    @Test
+    void testGet_ReturnsIndependentCopies() {
+        List<TagDto> first = cache.get("headphones", 1, recogniser);
+        first.get(0).setMatchType(TagDto.MatchType.SPELLCHECK);
+
+        List<TagDto> second = cache.get("headphones", 1, recogniser);
+
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals(TagDto.MatchType.EXACT, second.get(0).getMatchType());
+    }
+
+    @Test
+    void testGet_NewGenerationMisses() {
+        cache.get("headphones", 1, recogniser);
+        cache.get("headphones", 2, recogniser);
+
+        assertEquals(2, recognitions.get());
+    }
+
+    @Test
+    void testOnTagDictionaryRefreshed_InvalidatesEntries() {
+        cache.get("headphones", 1, recogniser);
+        cache.onTagDictionaryRefreshed(new TagDictionaryRefreshedEvent(2, 10));
+        cache.get("headphones", 1, recogniser);
+
+        assertEquals(2, recognitions.get());
+    }
+
+    private static List<TagDto> tokenTags(String query) {
+        List<TagDto> tags = new ArrayList<>();
+        for (String token : query.split(" ")) {
+            tags.add(new TagDto(token.toLowerCase(), "name", "concept", token.toLowerCase(), 1f, token, TagDto.MatchType.EXACT));
+        }
+        return tags;
+    }
+}
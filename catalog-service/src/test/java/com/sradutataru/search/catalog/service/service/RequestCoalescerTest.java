@@ -0,0 +1,133 @@
+package com.sradutataru.search.catalog.service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private static final SearchRequestKey KEY = SearchRequestKey.of(SearchEndpoint.SEMANTIC, "earbuds", 10, 1, Map.of());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        coalescer = new RequestCoalescer(meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        coalescer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentIdenticalRequestsShareResult() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> coalescer.execute(KEY, () -> {
+            searches.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "result";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> coalescer.execute(KEY, () -> {
+            searches.incrementAndGet();
+            return "other";
+        }));
+        while (collapsedCount() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    void testExecute_FollowersReceiveFailure() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> coalescer.execute(KEY, () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalArgumentException("boom");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> coalescer.execute(KEY, () -> "other"));
+        while (collapsedCount() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        Exception followerFailure = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertEquals(IllegalArgumentException.class, leaderFailure.getCause().getClass());
+        assertEquals(IllegalArgumentException.class, followerFailure.getCause().getClass());
+    }
+
+    @Test
+    void testExecuteAsync_FollowersShareLeaderFuture() {
+        AtomicInteger searches = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> leader = coalescer.executeAsync(KEY, () -> {
+            searches.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> follower = coalescer.executeAsync(KEY, () -> {
+            searches.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        pending.complete("result");
+
+        assertEquals("result", leader.join());
+        assertEquals("result", follower.join());
+        assertEquals(1, searches.get());
+        assertEquals(1.0, collapsedCount());
+    }
+
+    @Test
+    void testExecute_SequentialRequestsRunAgain() {
+        AtomicInteger searches = new AtomicInteger();
+
+        coalescer.execute(KEY, searches::incrementAndGet);
+        coalescer.execute(KEY, searches::incrementAndGet);
+
+        assertEquals(2, searches.get());
+    }
+
+    private double collapsedCount() {
+        return meterRegistry.get("catalog.search.coalescing.requests").tag("endpoint", "semantic")
+                .tag("result", "collapsed").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
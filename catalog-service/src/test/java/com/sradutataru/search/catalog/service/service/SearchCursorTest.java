@@ -0,0 +1,65 @@
+package com.sradutataru.search.catalog.service.service;
+
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorTest {
+
+    @Test
+    void testNext_EncodesLastHitOfFullPage() {
+        SearchHit[] hits = {hit(3.5f, "10"), hit(2.25f, "11")};
+
+        SearchCursor cursor = SearchCursor.decode(SearchCursor.next("exact", hits, 2));
+
+        assertEquals("exact", cursor.stage());
+        assertEquals(List.of(2.25, "11"), cursor.sortValues());
+    }
+
+    @Test
+    void testNext_NullWhenPageNotFull() {
+        assertNull(SearchCursor.next("exact", new SearchHit[]{hit(1f, "10")}, 2));
+        assertNull(SearchCursor.next(null, new SearchHit[0], 2));
+    }
+
+    @Test
+    void testDecode_RejectsInvalidToken() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(new SearchCursor("exact", List.of(1.0)).encode()));
+        assertNull(SearchCursor.decode(null));
+    }
+
+    @Test
+    void testPage_UsesSearchAfterInsteadOfFrom() {
+        SearchCursor after = new SearchCursor(null, List.of(2.25, "11"));
+
+        SearchSourceBuilder source = SearchCursor.page(new SearchSourceBuilder(), 10, 50, after);
+
+        assertEquals(-1, source.from());
+        assertEquals(10, source.size());
+        assertArrayEquals(new Object[]{2.25, "11"}, source.searchAfter());
+        assertEquals(2, source.sorts().size());
+    }
+
+    @Test
+    void testPage_UsesFromWithoutCursor() {
+        SearchSourceBuilder source = SearchCursor.page(new SearchSourceBuilder(), 10, 3, null);
+
+        assertEquals(20, source.from());
+        assertNull(source.searchAfter());
+    }
+
+    private static SearchHit hit(float score, String productId) {
+        SearchHit hit = new SearchHit(1);
+        hit.sortValues(new Object[]{score, productId}, new DocValueFormat[]{DocValueFormat.RAW, DocValueFormat.RAW});
+        return hit;
+    }
+}
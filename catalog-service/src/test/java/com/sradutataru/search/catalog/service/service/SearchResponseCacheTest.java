@@ -0,0 +1,102 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.config.SearchCacheProperties;
+import com.sradutataru.search.catalog.service.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.sradutataru.search.catalog.service.service.SearchEndpoint.KEYWORD;
+import static com.sradutataru.search.catalog.service.service.SearchEndpoint.SEMANTIC;
+import static com.sradutataru.search.catalog.service.service.SearchEndpoint.TYPEAHEAD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchCacheProperties properties = new SearchCacheProperties();
+    private final AtomicInteger searches = new AtomicInteger();
+    private SearchResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResponseCache(properties, meterRegistry);
+        cache.init();
+    }
+
+    @Test
+    void testGet_NormalizedRequestsShareEntry() {
+        ProductResponse first = cache.get(SearchRequestKey.of(KEYWORD, "Wireless  Earbuds", 10, 1, Map.of("attributes.color", "black")), this::search);
+        ProductResponse second = cache.get(SearchRequestKey.of(KEYWORD, "wireless earbuds ", 10, 1, Map.of("attributes.color", "black")), this::search);
+
+        assertSame(first, second);
+        assertEquals(1, searches.get());
+        assertEquals(1.0, meterRegistry.get("catalog.search.cache.requests").tag("endpoint", "keyword")
+                .tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testGet_DifferentPagesMiss() {
+        cache.get(SearchRequestKey.of(KEYWORD, "earbuds", 10, 1, Map.of()), this::search);
+        cache.get(SearchRequestKey.of(KEYWORD, "earbuds", 10, 2, Map.of()), this::search);
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void testGet_DisabledEndpointBypassesCache() {
+        properties.endpoint(TYPEAHEAD).setEnabled(false);
+
+        cache.get(SearchRequestKey.of(TYPEAHEAD, "ear", null, null, null), () -> List.of("earbuds", String.valueOf(searches.incrementAndGet())));
+        cache.get(SearchRequestKey.of(TYPEAHEAD, "ear", null, null, null), () -> List.of("earbuds", String.valueOf(searches.incrementAndGet())));
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void testOnLiveIndexChanged_InvalidatesEntries() {
+        cache.get(SearchRequestKey.of(KEYWORD, "earbuds", 10, 1, Map.of()), this::search);
+        cache.onLiveIndexChanged(new LiveIndexChangedEvent(Set.of("catalog-index_A"), Set.of("catalog-index_B")));
+        cache.get(SearchRequestKey.of(KEYWORD, "earbuds", 10, 1, Map.of()), this::search);
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void testOnTagDictionaryRefreshed_InvalidatesSemanticEntriesOnly() {
+        cache.get(SearchRequestKey.of(KEYWORD, "earbuds", 10, 1, Map.of()), this::search);
+        cache.get(SearchRequestKey.of(SEMANTIC, "earbuds", 10, 1, Map.of()), this::search);
+        cache.onTagDictionaryRefreshed(new TagDictionaryRefreshedEvent(2, 10));
+        cache.get(SearchRequestKey.of(KEYWORD, "earbuds", 10, 1, Map.of()), this::search);
+        cache.get(SearchRequestKey.of(SEMANTIC, "earbuds", 10, 1, Map.of()), this::search);
+
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    void testEndpoint_MissingEndpointsGetDefaultsWhenBound() {
+        SearchCacheProperties bound = new SearchCacheProperties();
+        SearchCacheProperties.EndpointCache keyword = new SearchCacheProperties.EndpointCache();
+        keyword.setTtlMs(1000);
+        bound.setEndpoints(Map.of(KEYWORD, keyword));
+
+        bound.init();
+
+        assertEquals(1000, bound.endpoint(KEYWORD).getTtlMs());
+        assertEquals(60000, bound.endpoint(SEMANTIC).getTtlMs());
+        assertTrue(bound.endpoint(TYPEAHEAD).isEnabled());
+    }
+
+    private ProductResponse search() {
+        searches.incrementAndGet();
+        return new ProductResponse("earbuds", 0, Map.of(), new ArrayList<>(), 10, 1, null, null);
+    }
+}
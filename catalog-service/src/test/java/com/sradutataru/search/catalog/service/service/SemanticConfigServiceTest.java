@@ -0,0 +1,87 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SemanticConfigServiceTest {
+
+    private static final String ONE_STAGE = "{\"stages\":[{\"name\":\"keyword match\",\"fields\":{\"name.concept\":25},\"minMatchPercent\":1.0}]}";
+    private static final String TWO_STAGES = "{\"stages\":[{\"name\":\"keyword match\",\"fields\":{\"name.concept\":25},\"minMatchPercent\":1.0},"
+            + "{\"name\":\"text match\",\"fields\":{\"name.text\":12},\"minMatchPercent\":0.5}]}";
+
+    @TempDir
+    Path dir;
+
+    private Path config;
+    private SemanticConfigService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = write(ONE_STAGE, 1_000);
+        service = spy(new SemanticConfigService(new DefaultResourceLoader(), new ObjectMapper()));
+        ReflectionTestUtils.setField(service, "configLocation", config.toUri().toString());
+        service.init();
+    }
+
+    @Test
+    void testReloadIfModified_ReloadsChangedFile() throws IOException {
+        write(TWO_STAGES, 2_000);
+
+        service.reloadIfModified();
+
+        assertEquals(2, service.current().getStages().size());
+    }
+
+    @Test
+    void testReloadIfModified_TriesBrokenFileOnce() throws IOException {
+        SemanticPlan previous = service.current();
+        write("{\"stages\":[]}", 2_000);
+
+        service.reloadIfModified();
+        service.reloadIfModified();
+
+        verify(service, times(2)).reload();
+        assertSame(previous, service.current());
+    }
+
+    @Test
+    void testReloadIfModified_RetriesBrokenFileOnceFixed() throws IOException {
+        write("{\"stages\":", 2_000);
+        service.reloadIfModified();
+
+        write(TWO_STAGES, 3_000);
+        service.reloadIfModified();
+
+        assertEquals(2, service.current().getStages().size());
+    }
+
+    @Test
+    void testReload_FailsOnInvalidConfiguration() throws IOException {
+        write("{\"stages\":[]}", 2_000);
+
+        assertThrows(RuntimeException.class, service::reload);
+    }
+
+    private Path write(String content, long modifiedMs) throws IOException {
+        Path file = dir.resolve("semantic-config.json");
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMs));
+        return file;
+    }
+}
@@ -0,0 +1,151 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.client.RequestOptions.DEFAULT;
+
+/**
+ * Compares the local spelling corrector with the Elasticsearch fuzzy lookup it replaces, on single-edit
+ * misspellings of the real tag vocabulary. Needs a running cluster with a populated {@code semantic-tags}
+ * index; connection settings are read from the {@code es.host}, {@code es.port}, {@code es.username} and
+ * {@code es.password} system properties. Recall of both paths is logged during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Slf4j
+public class SpellCorrectorBenchmark {
+
+    private static final int SAMPLE_SIZE = 500;
+
+    private RestHighLevelClient client;
+    private TagDictionary dictionary;
+    private final List<String> misspellings = new ArrayList<>();
+    private final List<String> expected = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        BasicCredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+                System.getProperty("es.username", "elastic"), System.getProperty("es.password", "ElasticRocks!")));
+        client = new RestHighLevelClient(RestClient.builder(new HttpHost(
+                        System.getProperty("es.host", "localhost"), Integer.getInteger("es.port", 9200), "http"))
+                .setHttpClientConfigCallback(builder -> builder.setDefaultCredentialsProvider(credentialsProvider)));
+
+        TagDictionaryService tagDictionaryService = new TagDictionaryService(client, new ObjectMapper(), event -> { });
+        ReflectionTestUtils.setField(tagDictionaryService, "scrollSize", 1000);
+        dictionary = tagDictionaryService.refresh();
+
+        Random random = new Random(42);
+        List<String> candidates = dictionary.terms().stream()
+                .filter(term -> term.length() >= 4 && term.chars().allMatch(Character::isLetterOrDigit))
+                .toList();
+        for (int i = 0; i < SAMPLE_SIZE && !candidates.isEmpty(); i++) {
+            String term = candidates.get(random.nextInt(candidates.size()));
+            misspellings.add(misspell(term, random));
+            expected.add(term);
+        }
+        if (misspellings.isEmpty()) {
+            throw new IllegalStateException("semantic-tags has no single-word tags to misspell");
+        }
+        log.info("Recall over {} misspellings: local {}, elasticsearch {}", misspellings.size(),
+                String.format("%.3f", localRecall()), String.format("%.3f", elasticsearchRecall()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Benchmark
+    public List<TagDto> local() {
+        return dictionary.corrections(nextMisspelling(), 100);
+    }
+
+    @Benchmark
+    public SearchResponse elasticsearch() throws IOException {
+        return client.search(SemanticService.fuzzyRequest(nextMisspelling()), DEFAULT);
+    }
+
+    private String nextMisspelling() {
+        next = (next + 1) % misspellings.size();
+        return misspellings.get(next);
+    }
+
+    private double localRecall() {
+        int found = 0;
+        for (int i = 0; i < misspellings.size(); i++) {
+            String term = expected.get(i);
+            if (dictionary.corrections(misspellings.get(i), 100).stream().anyMatch(tag -> TagDictionary.key(tag.getTag()).equals(term))) {
+                found++;
+            }
+        }
+        return (double) found / misspellings.size();
+    }
+
+    private double elasticsearchRecall() throws IOException {
+        int found = 0;
+        for (int i = 0; i < misspellings.size(); i++) {
+            SearchResponse response = client.search(SemanticService.fuzzyRequest(misspellings.get(i)), DEFAULT);
+            for (SearchHit hit : response.getHits().getHits()) {
+                if (TagDictionary.key((String) hit.getSourceAsMap().get("tag")).equals(expected.get(i))) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return (double) found / misspellings.size();
+    }
+
+    private static String misspell(String term, Random random) {
+        int position = 1 + random.nextInt(term.length() - 1);
+        char letter = (char) ('a' + random.nextInt(26));
+        return switch (random.nextInt(4)) {
+            case 0 -> term.substring(0, position) + letter + term.substring(position + 1);
+            case 1 -> term.substring(0, position) + term.substring(position + 1);
+            case 2 -> term.substring(0, position) + letter + term.substring(position);
+            default -> position < term.length() - 1
+                    ? term.substring(0, position) + term.charAt(position + 1) + term.charAt(position) + term.substring(position + 2)
+                    : term.substring(0, position) + letter;
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SpellCorrectorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.sradutataru.search.catalog.service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpellCorrectorTest {
+
+    private static final List<String> TERMS = List.of("apple", "graphite", "headphones", "iphone", "phone", "samsung");
+
+    private final SpellCorrector corrector = SpellCorrector.build(TERMS, new float[]{1, 1, 1, 2, 1, 1});
+
+    @Test
+    void testAutoDistanceFollowsTokenLength() {
+        assertEquals(0, SpellCorrector.autoDistance("tv"));
+        assertEquals(1, SpellCorrector.autoDistance("appel"));
+        assertEquals(2, SpellCorrector.autoDistance("samsnug"));
+    }
+
+    @Test
+    void testLookupCorrectsSingleEdit() {
+        List<SpellCorrector.Suggestion> suggestions = corrector.lookup("Aple");
+
+        assertEquals(1, suggestions.size());
+        assertEquals("apple", suggestions.get(0).term());
+        assertEquals(1, suggestions.get(0).distance());
+    }
+
+    @Test
+    void testLookupCountsTranspositionAsOneEdit() {
+        List<SpellCorrector.Suggestion> suggestions = corrector.lookup("smasung");
+
+        assertEquals("samsung", suggestions.get(0).term());
+        assertEquals(1, suggestions.get(0).distance());
+    }
+
+    @Test
+    void testLookupRanksByDistanceThenRank() {
+        List<SpellCorrector.Suggestion> suggestions = corrector.lookup("phonex");
+
+        assertEquals(List.of("phone", "iphone"), suggestions.stream().map(SpellCorrector.Suggestion::term).toList());
+    }
+
+    @Test
+    void testLookupSkipsShortTokens() {
+        assertTrue(corrector.lookup("ap").isEmpty());
+    }
+
+    @Test
+    void testDistanceStopsAboveMax() {
+        assertEquals(3, SpellCorrector.distance("graphite", "samsung", 2));
+        assertEquals(1, SpellCorrector.distance("headphone", "headphones", 2));
+    }
+}
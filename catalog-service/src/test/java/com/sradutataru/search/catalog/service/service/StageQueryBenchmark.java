@@ -0,0 +1,168 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.SemanticStage;
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.sradutataru.search.catalog.service.dto.TagDto.MatchType.EXACT;
+import static com.sradutataru.search.catalog.service.dto.TagDto.MatchType.SPELLCHECK;
+import static com.sradutataru.search.catalog.service.dto.TagDto.MatchType.UNRECOGNISED;
+
+/**
+ * Measures {@link SemanticService#buildStageQuery} with the compiled, memoized stage against the previous
+ * implementation, kept below verbatim as {@link #legacyBuildStageQuery}, which recompiled every dynamic field
+ * pattern for each tag. Tag lists mirror what recognition produces for typical catalog queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageQueryBenchmark {
+
+    @Param({"apple iphone 13 pro", "samsung galaxy black 512gb 5000mah phantom"})
+    private String query;
+
+    private SemanticStage stage;
+    private CompiledStage compiledStage;
+    private List<TagDto> tags;
+
+    @Setup
+    public void setUp() {
+        stage = new SemanticStage();
+        stage.setName("partial match");
+        Map<String, Float> fields = new LinkedHashMap<>();
+        fields.put("name.concept", 25f);
+        fields.put("name.text", 12f);
+        fields.put("name.shingle", 10f);
+        fields.put("search_keywords.concept", 25f);
+        fields.put("search_keywords.text", 12f);
+        fields.put("search_keywords.shingle", 10f);
+        fields.put("brand_name.concept", 30f);
+        fields.put("category_name.concept", 20f);
+        stage.setFields(fields);
+        stage.setDynamicFields(Map.of("attributes.*", 25f));
+        stage.setMinMatchPercent(0.5f);
+        compiledStage = new CompiledStage(stage);
+
+        tags = new ArrayList<>();
+        String[] tokens = query.split(" ");
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            if (i == tokens.length - 1) {
+                tags.add(tag(token, "unrecognised", "concept", UNRECOGNISED, token));
+                continue;
+            }
+            tags.add(tag(token, "name", "text", EXACT, token));
+            tags.add(tag(token, "brand_name", "concept", EXACT, token));
+            tags.add(tag(token, "attributes.color", "concept", SPELLCHECK, token));
+            tags.add(tag(token, "attributes.storage", "concept", SPELLCHECK, token));
+            tags.add(tag(token, "attributes.battery", "concept", SPELLCHECK, token));
+        }
+    }
+
+    @Benchmark
+    public DisMaxQueryBuilder compiled() {
+        return SemanticService.buildStageQuery(tags, compiledStage, Map.of());
+    }
+
+    @Benchmark
+    public DisMaxQueryBuilder legacy() {
+        return legacyBuildStageQuery(tags, stage, Map.of());
+    }
+
+    private static TagDto tag(String tag, String field, String type, TagDto.MatchType matchType, String originalToken) {
+        return new TagDto(tag, field, type, tag + "_" + field + "_" + type, 1.0f, originalToken, matchType);
+    }
+
+    private static DisMaxQueryBuilder legacyBuildStageQuery(List<TagDto> recognizedTags, SemanticStage stage, Map<String, String> attributeFilters) {
+        Map<String, List<TagDto>> tagPerKeyword = recognizedTags.stream().collect(Collectors.toMap(tag->tag.getOriginalToken().toLowerCase(), List::of, (t1, t2) -> {
+            List<TagDto> tags = new ArrayList<>();
+            tags.addAll(t1);
+            tags.addAll(t2);
+            return tags;
+        }));
+        DisMaxQueryBuilder boolQuery = QueryBuilders.disMaxQuery().tieBreaker(0.5f);
+        float matchedTagsInStage = 0;
+        List<TagDto> unrecognizedTags = new ArrayList<>();
+        for (Map.Entry<String, List<TagDto>> tag : tagPerKeyword.entrySet()) {
+            DisMaxQueryBuilder innerDisMax = QueryBuilders.disMaxQuery().tieBreaker(0.2f);
+            boolean matched = false;
+            for(TagDto tagDto : tag.getValue()) {
+                if(tagDto.getMatchType().equals(UNRECOGNISED)) {
+                    unrecognizedTags.add(tagDto);
+                }
+                String fieldVariant = tagDto.getField();
+                if(!fieldVariant.startsWith("attribute")) {
+                    fieldVariant += "." + tagDto.getType();
+                }
+                float fieldBoostFromStage = legacyGetFieldBoostFromStage(stage, fieldVariant);
+                if (fieldBoostFromStage != -1) {
+                    matched = true;
+                    float boost = fieldBoostFromStage;
+                    if(tagDto.getMatchType().equals(SPELLCHECK)) {
+                        boost /= 2;
+                    }
+                    innerDisMax.add(QueryBuilders.termQuery(fieldVariant, tagDto.getTag()).boost(boost));
+                }
+            }
+            if(matched) {
+                matchedTagsInStage++;
+                boolQuery.add(innerDisMax);
+            }
+        }
+
+        if (attributeFilters != null && !attributeFilters.isEmpty()) {
+            attributeFilters.forEach((key, value) ->
+                    boolQuery.add(QueryBuilders.termQuery("attributes." + key, value))
+            );
+        }
+        if(matchedTagsInStage / tagPerKeyword.keySet().size() < stage.getMinMatchPercent()) {
+            return null;
+        }
+        if(!unrecognizedTags.isEmpty()) {
+            boolQuery.add(QueryBuilders.moreLikeThisQuery(stage.getFields().keySet().toArray(String[]::new), unrecognizedTags.stream().map(TagDto::getOriginalToken).toArray(String[]::new), null));
+        }
+        return boolQuery;
+    }
+
+    private static float legacyGetFieldBoostFromStage(SemanticStage stage, String fieldVariant) {
+        if(stage.getFields().containsKey(fieldVariant)) {
+            return stage.getFields().get(fieldVariant);
+        }
+        Optional<Map.Entry<String, Float>> dynamicBoost = stage.getDynamicFields().entrySet().stream().filter(entry -> Regex.compile(entry.getKey(), null).matcher(fieldVariant).matches()).findFirst();
+        if(dynamicBoost.isPresent()) {
+            return dynamicBoost.get().getValue();
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StageQueryBenchmark.class.getSimpleName()).build()).run();
+    }
+}
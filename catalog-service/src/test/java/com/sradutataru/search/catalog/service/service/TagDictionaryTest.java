@@ -0,0 +1,81 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.TagDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagDictionaryTest {
+
+    private static final List<TagDto> TAGS = List.of(
+            tag("Apple", "brand_name", "concept"),
+            tag("apple", "name", "text"),
+            tag("iPhone 13 Pro", "name", "concept"),
+            tag("iphone", "name", "text"),
+            tag("Graphite", "attributes.color", "concept")
+    );
+
+    @Test
+    void testExactLookupIgnoresCase() {
+        TagDictionary dictionary = TagDictionary.build(TAGS, 1);
+
+        List<TagDto> result = dictionary.exact("APPLE");
+
+        assertEquals(2, result.size());
+        assertTrue(result.stream().anyMatch(tag -> tag.getField().equals("brand_name")));
+        assertTrue(result.stream().anyMatch(tag -> tag.getField().equals("name")));
+    }
+
+    @Test
+    void testExactLookupMatchesMultiWordPhrase() {
+        TagDictionary dictionary = TagDictionary.build(TAGS, 1);
+
+        List<TagDto> result = dictionary.exact("iphone 13 pro");
+
+        assertEquals(1, result.size());
+        assertEquals("iPhone 13 Pro", result.get(0).getTag());
+        assertTrue(dictionary.exact("iphone 13").isEmpty());
+    }
+
+    @Test
+    void testPrefixLookupIsLimited() {
+        TagDictionary dictionary = TagDictionary.build(TAGS, 1);
+
+        assertEquals(2, dictionary.prefix("iph", 10).size());
+        assertEquals(1, dictionary.prefix("iph", 1).size());
+        assertTrue(dictionary.prefix("zzz", 10).isEmpty());
+    }
+
+    @Test
+    void testLookupsReturnCopies() {
+        TagDictionary dictionary = TagDictionary.build(TAGS, 1);
+
+        dictionary.exact("graphite").get(0).setMatchType(TagDto.MatchType.EXACT);
+
+        assertNull(dictionary.exact("graphite").get(0).getMatchType());
+    }
+
+    @Test
+    void testHasSameTagsComparesEntries() {
+        TagDictionary dictionary = TagDictionary.build(TAGS, 1);
+        List<TagDto> reordered = new ArrayList<>(TAGS);
+        Collections.reverse(reordered);
+        List<TagDto> reweighted = new ArrayList<>(TAGS);
+        reweighted.set(0, new TagDto("Apple", "brand_name", "concept", "apple_brand_name_concept", 2.0f, null, null));
+
+        assertTrue(dictionary.hasSameTags(reordered));
+        assertFalse(dictionary.hasSameTags(TAGS.subList(0, 3)));
+        assertFalse(dictionary.hasSameTags(reweighted));
+    }
+
+    private static TagDto tag(String tag, String field, String type) {
+        return new TagDto(tag, field, type, tag.toLowerCase() + "_" + field + "_" + type, 1.0f, null, null);
+    }
+}
@@ -0,0 +1,69 @@
+package com.sradutataru.search.catalog.service.service;
+
+import com.sradutataru.search.catalog.service.dto.ProductDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TypeaheadIndexTest {
+
+    private final TypeaheadIndex index = TypeaheadIndex.build(List.of(
+            product("1", "Samsung Galaxy S23", "Samsung Electronics Smartphones", 4.5f, 10),
+            product("2", "Samsung Galaxy Buds", "Samsung Earbuds", 4.8f, 5),
+            product("3", "Apple iPhone 14 Pro", "Apple Smartphones", 4.7f, 3),
+            product("4", "samsung galaxy s23", "Samsung Phones", 3.0f, 100),
+            product("5", "Sony WH-1000XM5", "Sony Headphones", null, 50),
+            product("6", null, "Unnamed", 5.0f, 1)
+    ), 10);
+
+    @Test
+    void testSuggest_SingleTokenRankedByRatingThenStock() {
+        assertEquals(List.of("Samsung Galaxy Buds", "Apple iPhone 14 Pro", "Samsung Galaxy S23", "Sony WH-1000XM5"),
+                index.suggest("s", 10));
+        assertEquals(List.of("Samsung Galaxy Buds", "Apple iPhone 14 Pro"), index.suggest("s", 2));
+    }
+
+    @Test
+    void testBuild_DeduplicatesNamesIgnoringCase() {
+        assertEquals(4, index.size());
+        assertEquals(List.of("Samsung Galaxy S23"), index.suggest("phon", 10));
+    }
+
+    @Test
+    void testSuggest_MatchesKeywords() {
+        assertEquals(List.of("Apple iPhone 14 Pro", "Samsung Galaxy S23"), index.suggest("smart", 10));
+    }
+
+    @Test
+    void testSuggest_LeadingTokensMatchWholeTokens() {
+        assertEquals(List.of("Samsung Galaxy Buds", "Samsung Galaxy S23"), index.suggest("SAMSUNG gal", 10));
+        assertEquals(List.of("Samsung Galaxy S23"), index.suggest("samsung smart", 10));
+        assertEquals(List.of(), index.suggest("samsu galaxy", 10));
+        assertEquals(List.of("Apple iPhone 14 Pro"), index.suggest("iphone 1", 10));
+    }
+
+    @Test
+    void testSuggest_TokenizesQueryLikeIndexedText() {
+        assertEquals(List.of("Sony WH-1000XM5"), index.suggest("wh-1000", 10));
+        assertEquals(List.of("Sony WH-1000XM5"), index.suggest("1000xm", 10));
+    }
+
+    @Test
+    void testSuggest_UnknownOrBlankQuery() {
+        assertEquals(List.of(), index.suggest("xyz", 10));
+        assertEquals(List.of(), index.suggest(" ", 10));
+        assertEquals(List.of(), TypeaheadIndex.build(List.of(), 10).suggest("s", 10));
+    }
+
+    private static ProductDto product(String id, String name, String keywords, Float rating, Integer stock) {
+        ProductDto product = new ProductDto();
+        product.setProductId(id);
+        product.setName(name);
+        product.setSearchKeywords(keywords);
+        product.setRating(rating);
+        product.setStock(stock);
+        return product;
+    }
+}